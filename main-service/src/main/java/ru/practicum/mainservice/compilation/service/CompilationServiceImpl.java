@@ -16,11 +16,15 @@ import ru.practicum.mainservice.event.dto.EventShortDto;
 import ru.practicum.mainservice.event.mapper.EventMapper;
 import ru.practicum.mainservice.event.model.Event;
 import ru.practicum.mainservice.event.repository.EventRepository;
+import ru.practicum.mainservice.event.service.EventViewCounter;
 import ru.practicum.mainservice.exception.exception.NotFoundException;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static ru.practicum.mainservice.util.LogColorizeUtil.colorizeClass;
 import static ru.practicum.mainservice.util.LogColorizeUtil.colorizeMethod;
@@ -34,6 +38,7 @@ public class CompilationServiceImpl implements CompilationService {
     private final EventRepository eventRepository;
     private final CompilationMapper compilationMapper;
     private final EventMapper eventMapper;
+    private final EventViewCounter eventViewCounter;
 
     @Override
     public List<CompilationDto> getCompilations(Boolean pinned, int from, int size) {
@@ -55,11 +60,16 @@ public class CompilationServiceImpl implements CompilationService {
             return List.of();
         }
 
+        log.info("{}.{}: Fetching views for the events of all compilations.", colorizeClass("CompilationService"), colorizeMethod("getCompilations()"));
+        Map<Long, Long> views = eventViewCounter.getViews(compilations.stream()
+                .flatMap(compilation -> compilation.getEvents().stream())
+                .collect(Collectors.toSet())).counts();
+
         log.info("{}.{}: Mapping compilation to CompilationDto", colorizeClass("CompilationService"), colorizeMethod("getCompilations()"));
         List<CompilationDto> compilationDtos = compilations.stream()
                 .map(compilation -> {
                     log.info("{}.{}: Mapping event to EventShortDto", colorizeClass("CompilationService"), colorizeMethod("getCompilations()"));
-                    List<EventShortDto> eventShortDtos = compilation.getEvents().stream().map(eventMapper::toEventShortDtoFromEvent).toList();
+                    List<EventShortDto> eventShortDtos = toEventShortDtos(compilation.getEvents(), views);
                     return compilationMapper.toCompilationDtoFromCompilation(compilation, eventShortDtos);
                 })
                 .toList();
@@ -76,7 +86,7 @@ public class CompilationServiceImpl implements CompilationService {
                 .orElseThrow(() -> new NotFoundException(String.format("Compilation with id=%d not found", compId)));
 
         log.info("{}.{}: Mapping event to EventShortDto", colorizeClass("CompilationService"), colorizeMethod("getCompilationById()"));
-        List<EventShortDto> eventShortDtos = compilation.getEvents().stream().map(eventMapper::toEventShortDtoFromEvent).toList();
+        List<EventShortDto> eventShortDtos = toEventShortDtos(compilation.getEvents(), eventViewCounter.getViews(compilation.getEvents()).counts());
 
         log.info("{}.{}: Mapping compilations to CompilationDto", colorizeClass("CompilationService"), colorizeMethod("getCompilationById()"));
         CompilationDto compilationDto = compilationMapper.toCompilationDtoFromCompilation(compilation, eventShortDtos);
@@ -171,4 +181,11 @@ public class CompilationServiceImpl implements CompilationService {
         log.info("{}.{}: Successfully updated compilation with id={}", colorizeClass("CompilationService"), colorizeMethod("update()"), compId);
         return compilationDto;
     }
+
+    private List<EventShortDto> toEventShortDtos(Collection<Event> events, Map<Long, Long> views) {
+        return events.stream()
+                .map(eventMapper::toEventShortDtoFromEvent)
+                .peek(eventShortDto -> eventShortDto.setViews(views.get(eventShortDto.getId())))
+                .toList();
+    }
 }
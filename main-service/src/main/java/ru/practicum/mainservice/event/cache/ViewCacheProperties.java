@@ -0,0 +1,15 @@
+package ru.practicum.mainservice.event.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "views.cache")
+public class ViewCacheProperties {
+    private boolean enabled = true;
+    private int maxSize = 10_000;
+    private Duration ttl = Duration.ofSeconds(10);
+    private Duration refreshAfter = Duration.ofSeconds(8);
+}
@@ -0,0 +1,181 @@
+package ru.practicum.mainservice.event.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static ru.practicum.mainservice.util.LogColorizeUtil.colorizeClass;
+import static ru.practicum.mainservice.util.LogColorizeUtil.colorizeMethod;
+
+/**
+ * LRU cache of per-event view counts bounded by {@code maxSize} entries. A count expires {@code ttl} after it
+ * was loaded; one read after {@code refreshAfter} reloads it in the background while the old count is still
+ * served, so events that keep being read never miss. Concurrent misses for an event share a single load.
+ */
+@Component
+@Slf4j
+public class ViewCountCache implements DisposableBean {
+    private final ViewCacheProperties properties;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, CompletableFuture<Long>> loading = new ConcurrentHashMap<>();
+    private final ExecutorService refresher = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter coalescedCounter;
+    private final Counter refreshCounter;
+    private final Counter evictionCounter;
+
+    public ViewCountCache(ViewCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.hitCounter = Counter.builder("views.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.missCounter = Counter.builder("views.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.coalescedCounter = Counter.builder("views.cache.requests").tag("result", "coalesced").register(meterRegistry);
+        this.refreshCounter = Counter.builder("views.cache.refreshes").register(meterRegistry);
+        this.evictionCounter = Counter.builder("views.cache.evictions").register(meterRegistry);
+        Gauge.builder("views.cache.size", this, ViewCountCache::size).register(meterRegistry);
+    }
+
+    /**
+     * Returns the view counts of the given events, keyed by id with their creation dates as values.
+     * Counts that are not cached are loaded with one call to the loader.
+     */
+    public Map<Long, Long> getAll(Map<Long, LocalDateTime> events, Function<Map<Long, LocalDateTime>, Map<Long, Long>> loader) {
+        if (!properties.isEnabled()) {
+            return loader.apply(events);
+        }
+
+        long now = System.nanoTime();
+        Map<Long, Long> views = new HashMap<>();
+        Map<Long, LocalDateTime> stale = new HashMap<>();
+        Map<Long, LocalDateTime> missing = new HashMap<>();
+        Map<Long, CompletableFuture<Long>> owned = new HashMap<>();
+        Map<Long, CompletableFuture<Long>> awaited = new HashMap<>();
+        synchronized (this) {
+            events.forEach((eventId, createdOn) -> {
+                Entry entry = entries.get(eventId);
+                long age = entry != null ? now - entry.loadedAt() : Long.MAX_VALUE;
+                if (age < properties.getTtl().toNanos()) {
+                    hitCounter.increment();
+                    views.put(eventId, entry.views());
+                    if (age >= properties.getRefreshAfter().toNanos()) {
+                        stale.put(eventId, createdOn);
+                    }
+                    return;
+                }
+
+                CompletableFuture<Long> load = new CompletableFuture<>();
+                CompletableFuture<Long> running = loading.putIfAbsent(eventId, load);
+                if (running != null) {
+                    coalescedCounter.increment();
+                    awaited.put(eventId, running);
+                } else {
+                    missCounter.increment();
+                    missing.put(eventId, createdOn);
+                    owned.put(eventId, load);
+                }
+            });
+        }
+
+        if (!missing.isEmpty()) {
+            views.putAll(load(missing, owned, loader));
+        }
+        awaited.forEach((eventId, load) -> views.put(eventId, join(load)));
+        if (!stale.isEmpty()) {
+            refresh(stale, loader);
+        }
+        return views;
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+
+    private Map<Long, Long> load(Map<Long, LocalDateTime> events,
+                                 Map<Long, CompletableFuture<Long>> owned,
+                                 Function<Map<Long, LocalDateTime>, Map<Long, Long>> loader) {
+        try {
+            Map<Long, Long> loaded = loader.apply(events);
+            long loadedAt = System.nanoTime();
+            synchronized (this) {
+                loaded.forEach((eventId, views) -> entries.put(eventId, new Entry(views, loadedAt)));
+                evictOverflow();
+            }
+            owned.forEach((eventId, load) -> load.complete(loaded.getOrDefault(eventId, 0L)));
+            return loaded;
+        } catch (RuntimeException e) {
+            owned.values().forEach(load -> load.completeExceptionally(e));
+            throw e;
+        } finally {
+            owned.forEach(loading::remove);
+        }
+    }
+
+    // Stale counts are reloaded off the request thread; a failed refresh keeps serving them until they expire.
+    private void refresh(Map<Long, LocalDateTime> stale, Function<Map<Long, LocalDateTime>, Map<Long, Long>> loader) {
+        Map<Long, LocalDateTime> events = new HashMap<>();
+        Map<Long, CompletableFuture<Long>> owned = new HashMap<>();
+        stale.forEach((eventId, createdOn) -> {
+            CompletableFuture<Long> load = new CompletableFuture<>();
+            if (loading.putIfAbsent(eventId, load) == null) {
+                events.put(eventId, createdOn);
+                owned.put(eventId, load);
+            }
+        });
+        if (events.isEmpty()) {
+            return;
+        }
+
+        refreshCounter.increment(events.size());
+        refresher.execute(() -> {
+            try {
+                load(events, owned, loader);
+            } catch (RuntimeException e) {
+                log.warn("{}.{}: Refreshing views of events {} failed.", colorizeClass("ViewCountCache"), colorizeMethod("refresh()"),
+                        events.keySet(), e);
+            }
+        });
+    }
+
+    private static Long join(CompletableFuture<Long> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > properties.getMaxSize() && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictionCounter.increment();
+        }
+    }
+
+    private record Entry(long views, long loadedAt) {
+    }
+}
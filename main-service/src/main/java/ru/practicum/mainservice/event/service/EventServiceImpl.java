@@ -1,7 +1,5 @@
 package ru.practicum.mainservice.event.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,12 +9,10 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.client.StatsClient;
 import ru.practicum.dto.EndpointHitDto;
-import ru.practicum.dto.ViewStatsDto;
 import ru.practicum.mainservice.category.model.Category;
 import ru.practicum.mainservice.category.repository.CategoryRepository;
 import ru.practicum.mainservice.event.dto.*;
@@ -33,7 +29,6 @@ import ru.practicum.mainservice.user.model.User;
 import ru.practicum.mainservice.user.repository.UserRepository;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.Collection;
 import java.util.List;
@@ -55,7 +50,7 @@ public class EventServiceImpl implements EventService {
     private final StatsClient statsClient;
     private final EventMapper eventMapper;
     private final RequestMapper requestMapper;
-    private final ObjectMapper objectMapper;
+    private final EventViewCounter eventViewCounter;
     @Value("${spring.application.name}")
     private String serviceId;
 
@@ -104,16 +99,17 @@ public class EventServiceImpl implements EventService {
         sendStatisticalData(request);
 
         log.info("{}.{}: Updating views for each event.", colorizeClass("EventService"), colorizeMethod("getEvents()"));
-        List<Event> eventList = events.getContent().stream()
-                .peek(event -> {
-                    Long views = getUniqueViews(event, request.getRequestURI());
-                    views++;
-                    event.setViews(views);
-                })
-                .toList();
+        EventViewCounter.Views views = eventViewCounter.getViews(events.getContent());
+        if (views.degraded()) {
+            log.info("{}.{}: Views are the stored ones, skipping the update.", colorizeClass("EventService"), colorizeMethod("getEvents()"));
+        } else {
+            List<Event> eventList = events.getContent().stream()
+                    .peek(event -> event.setViews(views.counts().get(event.getId())))
+                    .toList();
 
-        log.info("{}.{}: Performing batch update for all events.", colorizeClass("EventService"), colorizeMethod("getEvents()"));
-        eventRepository.saveAll(eventList);
+            log.info("{}.{}: Performing batch update for all events.", colorizeClass("EventService"), colorizeMethod("getEvents()"));
+            eventRepository.saveAll(eventList);
+        }
 
         log.info("{}.{}: Converting events to EventShortDto.", colorizeClass("EventService"), colorizeMethod("getEvents()"));
         List<EventShortDto> shortEvents = events.getContent().stream()
@@ -139,12 +135,17 @@ public class EventServiceImpl implements EventService {
         }
 
         log.info("{}.{}: Updating views for each event.", colorizeClass("EventService"), colorizeMethod("getEventById()"));
-        Long views = getUniqueViews(event, request.getRequestURI());
-        views++;
-        event.setViews(views);
+        EventViewCounter.Views views = eventViewCounter.getViews(List.of(event));
+        // Stored views already include every view counted so far, so they are served as they are.
+        if (views.degraded()) {
+            log.info("{}.{}: Views of event with id={} are the stored ones, skipping the update.", colorizeClass("EventService"),
+                    colorizeMethod("getEventById()"), eventId);
+        } else {
+            event.setViews(views.counts().get(event.getId()) + 1);
 
-        log.info("{}.{}: Updated event with id={}.", colorizeClass("EventService"), colorizeMethod("getEventById()"), eventId);
-        event = eventRepository.save(event);
+            log.info("{}.{}: Updated event with id={}.", colorizeClass("EventService"), colorizeMethod("getEventById()"), eventId);
+            event = eventRepository.save(event);
+        }
 
         log.info("{}.{}: Mapping event to EventFullDto", colorizeClass("EventService"), colorizeMethod("getEventById()"));
         EventFullDto fullDto = eventMapper.toEventFullDtoFromEvent(event);
@@ -557,31 +558,6 @@ public class EventServiceImpl implements EventService {
                 .timestamp(LocalDateTime.now())
                 .build();
 
-        statsClient.create(stat);
-    }
-
-    private List<ViewStatsDto> convertResponseToList(ResponseEntity<Object> response) {
-        if (response.getBody() == null) {
-            return List.of();
-        }
-        try {
-            return objectMapper.convertValue(response.getBody(), new TypeReference<List<ViewStatsDto>>() {});
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to convert response to list", e);
-        }
-    }
-
-    private Long getUniqueViews(Event event, String uri) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
-        String startDate = event.getCreatedOn().format(formatter);
-        String endDate = LocalDateTime.now().format(formatter);
-        List<String> uris = List.of(uri);
-
-        List<ViewStatsDto> stats = convertResponseToList(statsClient.getStats(startDate, endDate, uris, true));
-
-        return stats.isEmpty()
-                ? 0L
-                : stats.stream().mapToLong(ViewStatsDto::getHits).sum();
+        statsClient.report(stat);
     }
 }
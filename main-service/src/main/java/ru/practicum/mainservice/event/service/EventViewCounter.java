@@ -0,0 +1,63 @@
+package ru.practicum.mainservice.event.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.client.StatsClient;
+import ru.practicum.client.StatsUnavailableException;
+import ru.practicum.mainservice.event.cache.ViewCountCache;
+import ru.practicum.mainservice.event.model.Event;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static ru.practicum.mainservice.util.LogColorizeUtil.colorizeClass;
+import static ru.practicum.mainservice.util.LogColorizeUtil.colorizeMethod;
+
+/**
+ * Looks up the unique views of a page of events through the view count cache. Events missing from it are
+ * counted with one stats call from the earliest creation date among them. While stats-server is unavailable
+ * the views stored on the events are returned instead, marked as degraded, so pages still render with possibly
+ * stale counts and callers know not to store them back.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class EventViewCounter {
+    private final StatsClient statsClient;
+    private final ViewCountCache viewCountCache;
+
+    public Views getViews(Collection<Event> events) {
+        Map<Long, LocalDateTime> createdOn = new HashMap<>();
+        events.forEach(event -> createdOn.put(event.getId(), event.getCreatedOn()));
+        try {
+            return new Views(viewCountCache.getAll(createdOn, this::load), false);
+        } catch (StatsUnavailableException e) {
+            log.warn("{}.{}: Stats server is unavailable, using stored views for {} events: {}", colorizeClass("EventViewCounter"),
+                    colorizeMethod("getViews()"), events.size(), e.getMessage());
+            Map<Long, Long> views = new HashMap<>();
+            events.forEach(event -> views.put(event.getId(), event.getViews() != null ? event.getViews() : 0L));
+            return new Views(views, true);
+        }
+    }
+
+    private Map<Long, Long> load(Map<Long, LocalDateTime> createdOn) {
+        LocalDateTime start = createdOn.values().stream()
+                .filter(Objects::nonNull)
+                .min(Comparator.naturalOrder())
+                .orElseGet(LocalDateTime::now);
+        log.info("{}.{}: Fetching unique views for {} events since {}.", colorizeClass("EventViewCounter"), colorizeMethod("load()"),
+                createdOn.size(), start);
+        return statsClient.getViews(createdOn.keySet(), start, LocalDateTime.now(), true);
+    }
+
+    /**
+     * View counts by event id, {@code degraded} when they are the stored views rather than counts from stats-server.
+     */
+    public record Views(Map<Long, Long> counts, boolean degraded) {
+    }
+}
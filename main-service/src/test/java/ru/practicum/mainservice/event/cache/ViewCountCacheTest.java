@@ -0,0 +1,113 @@
+package ru.practicum.mainservice.event.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ViewCountCacheTest {
+    private static final Map<Long, LocalDateTime> EVENT = Map.of(1L, LocalDateTime.of(2024, 3, 1, 12, 0));
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final CountDownLatch released = new CountDownLatch(1);
+    private ViewCacheProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private ViewCountCache cache;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ViewCacheProperties();
+        properties.setTtl(Duration.ofHours(1));
+        properties.setRefreshAfter(Duration.ofHours(1));
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ViewCountCache(properties, meterRegistry);
+        executor = Executors.newFixedThreadPool(50);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        cache.destroy();
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        Function<Map<Long, LocalDateTime>, Map<Long, Long>> loader = events -> {
+            loads.incrementAndGet();
+            await(released);
+            return Map.of(1L, 42L);
+        };
+
+        List<Future<Map<Long, Long>>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            results.add(executor.submit(() -> cache.getAll(EVENT, loader)));
+        }
+        waitFor(() -> meterRegistry.counter("views.cache.requests", "result", "coalesced").count() == 49);
+        released.countDown();
+
+        for (Future<Map<Long, Long>> result : results) {
+            assertEquals(Map.of(1L, 42L), result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void staleReadsTriggerOneRefresh() throws Exception {
+        properties.setRefreshAfter(Duration.ZERO);
+        cache.getAll(EVENT, events -> {
+            loads.incrementAndGet();
+            return Map.of(1L, 42L);
+        });
+
+        Function<Map<Long, LocalDateTime>, Map<Long, Long>> refresher = events -> {
+            loads.incrementAndGet();
+            await(released);
+            return Map.of(1L, 43L);
+        };
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Map.of(1L, 42L), cache.getAll(EVENT, refresher));
+        }
+        waitFor(() -> loads.get() == 2);
+        properties.setRefreshAfter(Duration.ofHours(1));
+        released.countDown();
+
+        waitFor(() -> cache.getAll(EVENT, refresher).get(1L) == 43L);
+        assertEquals(2, loads.get());
+        assertEquals(1, meterRegistry.counter("views.cache.refreshes").count());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not met in time.");
+            Thread.sleep(10);
+        }
+    }
+}
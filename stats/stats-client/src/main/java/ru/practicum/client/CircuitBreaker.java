@@ -0,0 +1,133 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker. It opens once at least {@code minimumCalls} of the last {@code window} calls
+ * were made and {@code failureRateThreshold} of them failed. After {@code openDuration} it lets
+ * {@code halfOpenCalls} probes through: it closes when all of them succeed and opens again on the first failure.
+ */
+@Slf4j
+class CircuitBreaker {
+    enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    private final StatsClientProperties.Breaker properties;
+    private final LongSupplier nanoTime;
+    private final boolean[] failures;
+    private final Map<State, Counter> transitionCounters = new EnumMap<>(State.class);
+    private State state = State.CLOSED;
+    private int calls;
+    private int failed;
+    private int next;
+    private long openedAt;
+    private int probesIssued;
+    private int probesSucceeded;
+
+    CircuitBreaker(StatsClientProperties.Breaker properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    CircuitBreaker(StatsClientProperties.Breaker properties, MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        this.properties = properties;
+        this.nanoTime = nanoTime;
+        this.failures = new boolean[properties.getWindow()];
+        for (State target : State.values()) {
+            transitionCounters.put(target, Counter.builder("stats.client.breaker.transitions")
+                    .tag("state", target.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        Gauge.builder("stats.client.breaker.state", this, breaker -> breaker.getState().ordinal()).register(meterRegistry);
+    }
+
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN && nanoTime.getAsLong() - openedAt >= properties.getOpenDuration().toNanos()) {
+            transitionTo(State.HALF_OPEN);
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case HALF_OPEN -> {
+                if (probesIssued >= properties.getHalfOpenCalls()) {
+                    yield false;
+                }
+                probesIssued++;
+                yield true;
+            }
+            case OPEN -> false;
+        };
+    }
+
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++probesSucceeded >= properties.getHalfOpenCalls()) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (calls >= properties.getMinimumCalls() && failed >= properties.getFailureRateThreshold() * calls) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    /**
+     * Gives back a call that ended without reaching stats-server, recording no outcome, so a half-open probe
+     * can be issued again instead of a local error closing the breaker.
+     */
+    synchronized void release() {
+        if (state == State.HALF_OPEN && probesIssued > 0) {
+            probesIssued--;
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (calls == failures.length) {
+            failed -= failures[next] ? 1 : 0;
+        } else {
+            calls++;
+        }
+        failures[next] = failure;
+        failed += failure ? 1 : 0;
+        next = (next + 1) % failures.length;
+    }
+
+    private void transitionTo(State target) {
+        log.warn("StatsClient: Circuit breaker moves from {} to {}.", state, target);
+        state = target;
+        transitionCounters.get(target).increment();
+        switch (target) {
+            case OPEN -> openedAt = nanoTime.getAsLong();
+            case HALF_OPEN -> {
+                probesIssued = 0;
+                probesSucceeded = 0;
+            }
+            case CLOSED -> {
+                calls = 0;
+                failed = 0;
+                next = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Collects reported hits in a bounded lock-free queue and hands them to the sink in batches, as soon as
+ * {@code batchSize} hits are queued and otherwise every {@code maxBatchLatency}. Every batch takes one of the
+ * report permits, which the sink releases once the batch is sent; while none is free the hits stay queued, so
+ * only a full queue drops hits, the one chosen by the overflow policy. Closing the buffer flushes whatever is
+ * still queued, waiting up to {@code timeout} for permits.
+ */
+class HitBuffer {
+    private final StatsClientProperties.Report properties;
+    private final Semaphore permits;
+    private final Consumer<List<EndpointHitDto>> sink;
+    private final Queue<EndpointHitDto> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    private final Counter droppedCounter;
+    private final DistributionSummary batchSizeSummary;
+
+    HitBuffer(StatsClientProperties.Report properties,
+              Semaphore permits,
+              Consumer<List<EndpointHitDto>> sink,
+              MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.permits = permits;
+        this.sink = sink;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-client-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long latency = properties.getMaxBatchLatency().toNanos();
+        flusher.scheduleWithFixedDelay(() -> flush(true), latency, latency, TimeUnit.NANOSECONDS);
+
+        Gauge.builder("stats.client.buffer.size", size, AtomicInteger::get).register(meterRegistry);
+        this.droppedCounter = Counter.builder("stats.client.buffer.dropped").register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("stats.client.batch.size").register(meterRegistry);
+    }
+
+    void offer(EndpointHitDto hit) {
+        if (size.incrementAndGet() > properties.getCapacity()) {
+            if (properties.getOverflowPolicy() == OverflowPolicy.DROP_NEWEST) {
+                size.decrementAndGet();
+                droppedCounter.increment();
+                return;
+            }
+            if (queue.poll() != null) {
+                size.decrementAndGet();
+                droppedCounter.increment();
+            }
+        }
+        queue.add(hit);
+        flushFullBatches();
+    }
+
+    /**
+     * Called when a report permit is released, so that full batches held back for want of one are sent
+     * without waiting for the latency tick.
+     */
+    void onPermitReleased() {
+        flushFullBatches();
+    }
+
+    void close() throws InterruptedException {
+        long deadline = System.nanoTime() + properties.getTimeout().toNanos();
+        flusher.shutdown();
+        flusher.awaitTermination(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        while (size.get() > 0 && permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+            if (!send()) {
+                return;
+            }
+        }
+    }
+
+    private void flushFullBatches() {
+        if (size.get() >= properties.getBatchSize() && flushPending.compareAndSet(false, true)) {
+            try {
+                flusher.execute(() -> {
+                    flushPending.set(false);
+                    flush(false);
+                });
+            } catch (RejectedExecutionException e) {
+                // Closing, the remaining hits are flushed by close().
+                flushPending.set(false);
+            }
+        }
+    }
+
+    // Full batches are sent right away; the remainder only when the latency tick asks for everything.
+    private void flush(boolean all) {
+        while ((all ? size.get() > 0 : size.get() >= properties.getBatchSize()) && permits.tryAcquire()) {
+            if (!send()) {
+                return;
+            }
+        }
+    }
+
+    // Sends one batch with a permit already taken, which is handed to the sink or released if nothing is queued.
+    private boolean send() {
+        List<EndpointHitDto> batch = drain(properties.getBatchSize());
+        if (batch.isEmpty()) {
+            permits.release();
+            return false;
+        }
+        batchSizeSummary.record(batch.size());
+        sink.accept(batch);
+        return true;
+    }
+
+    private List<EndpointHitDto> drain(int max) {
+        List<EndpointHitDto> batch = new ArrayList<>(Math.min(max, size.get()));
+        EndpointHitDto hit;
+        while (batch.size() < max && (hit = queue.poll()) != null) {
+            size.decrementAndGet();
+            batch.add(hit);
+        }
+        return batch;
+    }
+}
@@ -1,30 +1,106 @@
 package ru.practicum.client;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import org.springframework.web.util.UriComponentsBuilder;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.dto.codec.StatsWireFormat;
 
 @Service
-public class StatsClient {
+public class StatsClient implements DisposableBean {
+    private static final String EVENT_URI_PREFIX = "/events/";
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     private final RestTemplate rest;
+    private final boolean binary;
+    private final String baseUrl;
+    private final ObjectMapper objectMapper;
+    private final HttpClient reportClient;
+    private final StatsClientProperties.Report reportProperties;
+    private final Semaphore reportPermits;
+    private final Counter reportsSent;
+    private final Counter reportsFailed;
+    private final Counter reportsTimedOut;
+    private final Counter reportsRejected;
+    private final HitBuffer hitBuffer;
+    private final CircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+    private final StatsClientProperties.Bulkhead bulkheadProperties;
+    private final Counter breakerRejections;
+    private final Counter bulkheadRejections;
 
-    public StatsClient(RestTemplateBuilder builder) {
+    public StatsClient(RestTemplateBuilder builder,
+                       StatsClientProperties properties,
+                       ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry) {
+        this.binary = "binary".equalsIgnoreCase(properties.getWireFormat());
+        this.baseUrl = properties.getUrl();
         this.rest = builder
-                .uriTemplateHandler(new DefaultUriBuilderFactory("http://stats-server:9090"))
-                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory())
+                .uriTemplateHandler(new DefaultUriBuilderFactory(baseUrl))
+                .requestFactory(() -> requestFactory(properties))
+                .build();
+        this.objectMapper = objectMapper;
+        this.reportProperties = properties.getReport();
+        this.reportClient = HttpClient.newBuilder()
+                .connectTimeout(reportProperties.getConnectTimeout())
                 .build();
+        this.reportPermits = new Semaphore(reportProperties.getMaxInFlight());
+        this.reportsSent = reportCounter(meterRegistry, "sent");
+        this.reportsFailed = reportCounter(meterRegistry, "failed");
+        this.reportsTimedOut = reportCounter(meterRegistry, "timeout");
+        this.reportsRejected = reportCounter(meterRegistry, "rejected");
+        meterRegistry.gauge("stats.client.reports.in.flight", reportPermits,
+                permits -> reportProperties.getMaxInFlight() - permits.availablePermits());
+        this.hitBuffer = reportProperties.isBatching()
+                ? new HitBuffer(reportProperties, reportPermits, batch -> send("/hits", batch), meterRegistry)
+                : null;
+        this.circuitBreaker = new CircuitBreaker(properties.getBreaker(), meterRegistry);
+        this.bulkheadProperties = properties.getBulkhead();
+        this.bulkhead = new Semaphore(bulkheadProperties.getMaxConcurrent());
+        this.breakerRejections = rejectionCounter(meterRegistry, "circuit_breaker");
+        this.bulkheadRejections = rejectionCounter(meterRegistry, "bulkhead");
     }
 
     public ResponseEntity<Object> getStats(String start, String end, List<String> uris, boolean unique) {
@@ -45,26 +121,264 @@ public class StatsClient {
         return makeAndSendRequest(HttpMethod.GET, urlTemplate, parameters, null);
     }
 
-    public <T> ResponseEntity<Object> create(T body) {
-        return makeAndSendRequest(HttpMethod.POST, "/hit",null, body);
+    /**
+     * Counts the views of many events with a single /stats call over their {@code /events/{id}} uris.
+     * Every requested id is in the result, with zero views if it has none.
+     *
+     * @throws StatsUnavailableException if the call was not made or stats-server failed to answer it
+     */
+    public Map<Long, Long> getViews(Collection<Long> eventIds, LocalDateTime start, LocalDateTime end, boolean unique) {
+        Map<Long, Long> views = new HashMap<>();
+        eventIds.forEach(eventId -> views.put(eventId, 0L));
+        if (views.isEmpty()) {
+            return views;
+        }
+
+        URI uri = UriComponentsBuilder.fromHttpUrl(baseUrl)
+                .path("/stats")
+                .queryParam("start", start.format(TIMESTAMP))
+                .queryParam("end", end.format(TIMESTAMP))
+                .queryParam("uris", views.keySet().stream().map(eventId -> EVENT_URI_PREFIX + eventId).toList())
+                .queryParam("unique", unique)
+                .encode()
+                .build()
+                .toUri();
+        List<ViewStatsDto> stats;
+        try {
+            stats = call(() -> rest.exchange(uri, HttpMethod.GET, null, new ParameterizedTypeReference<List<ViewStatsDto>>() {
+            }).getBody());
+        } catch (HttpServerErrorException e) {
+            throw new StatsUnavailableException("Stats server failed to count views.", e);
+        }
+
+        if (stats != null) {
+            for (ViewStatsDto row : stats) {
+                Long eventId = toEventId(row.getUri());
+                if (eventId != null && views.containsKey(eventId)) {
+                    views.merge(eventId, row.getHits(), Long::sum);
+                }
+            }
+        }
+        return views;
+    }
+
+    public ResponseEntity<Object> create(EndpointHitDto body) {
+        if (binary) {
+            return makeAndSendRequest(HttpMethod.POST, "/hit", null, encode(List.of(body)));
+        }
+        return makeAndSendRequest(HttpMethod.POST, "/hit", null, body);
+    }
+
+    public ResponseEntity<Object> createAll(List<EndpointHitDto> body) {
+        if (binary) {
+            return makeAndSendRequest(HttpMethod.POST, "/hits", null, encode(body));
+        }
+        return makeAndSendRequest(HttpMethod.POST, "/hits", null, body);
+    }
+
+    /**
+     * Sends the hit in the background and returns at once. At most {@code stats-client.report.max-in-flight}
+     * requests are outstanding. With batching on, hits are queued and posted to /hits in batches, waiting in the
+     * queue while no request can be sent, and its capacity and overflow policy decide which are dropped; without
+     * batching a hit beyond the limit is dropped. Failures are only counted in the {@code stats.client.reports}
+     * metric, never thrown to the caller.
+     */
+    public void report(EndpointHitDto hit) {
+        if (hitBuffer != null) {
+            hitBuffer.offer(hit);
+        } else {
+            sendAsync("/hit", List.of(hit));
+        }
+    }
+
+    // Flushes the queued hits and gives the outstanding reports up to one timeout to complete.
+    @Override
+    public void destroy() throws InterruptedException {
+        if (hitBuffer != null) {
+            hitBuffer.close();
+        }
+        if (reportPermits.tryAcquire(reportProperties.getMaxInFlight(), reportProperties.getTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            reportPermits.release(reportProperties.getMaxInFlight());
+        }
+    }
+
+    private void sendAsync(String path, List<EndpointHitDto> hits) {
+        if (!reportPermits.tryAcquire()) {
+            reportsRejected.increment(hits.size());
+            return;
+        }
+        send(path, hits);
+    }
+
+    // Sends with a report permit already taken, which is released once the request is done.
+    private void send(String path, List<EndpointHitDto> hits) {
+        if (!circuitBreaker.tryAcquire()) {
+            releaseReportPermit();
+            breakerRejections.increment();
+            reportsRejected.increment(hits.size());
+            return;
+        }
+
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(reportProperties.getTimeout())
+                    .header(HttpHeaders.CONTENT_TYPE, binary ? StatsWireFormat.CONTENT_TYPE : MediaType.APPLICATION_JSON_VALUE)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(serialize(path, hits)))
+                    .build();
+        } catch (RuntimeException e) {
+            releaseReportPermit();
+            circuitBreaker.release();
+            reportsFailed.increment(hits.size());
+            return;
+        }
+
+        reportClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    releaseReportPermit();
+                    if (error == null && response.statusCode() < 500) {
+                        circuitBreaker.onSuccess();
+                    } else {
+                        circuitBreaker.onFailure();
+                    }
+                    if (error == null && response.statusCode() / 100 == 2) {
+                        reportsSent.increment(hits.size());
+                    } else if (unwrap(error) instanceof HttpTimeoutException) {
+                        reportsTimedOut.increment(hits.size());
+                    } else {
+                        reportsFailed.increment(hits.size());
+                    }
+                });
+    }
+
+    private void releaseReportPermit() {
+        reportPermits.release();
+        if (hitBuffer != null) {
+            hitBuffer.onPermitReleased();
+        }
+    }
+
+    private byte[] serialize(String path, List<EndpointHitDto> hits) {
+        if (binary) {
+            return encode(hits).getBody();
+        }
+        try {
+            return objectMapper.writeValueAsBytes("/hit".equals(path) ? hits.get(0) : hits);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs a blocking call through the bulkhead and the circuit breaker. Connection failures, timeouts and
+     * 5xx answers count as failures; other answers, including 4xx, show that stats-server is up. Any other error,
+     * such as an answer that cannot be read, records no outcome.
+     */
+    private <T> T call(Supplier<T> request) {
+        try {
+            if (!bulkhead.tryAcquire(bulkheadProperties.getMaxWait().toNanos(), TimeUnit.NANOSECONDS)) {
+                bulkheadRejections.increment();
+                throw new StatsUnavailableException("Too many concurrent calls to stats server.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StatsUnavailableException("Interrupted while waiting for a call to stats server.", e);
+        }
+
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                breakerRejections.increment();
+                throw new StatsUnavailableException("Circuit breaker for stats server is open.");
+            }
+            try {
+                T result = request.get();
+                circuitBreaker.onSuccess();
+                return result;
+            } catch (HttpServerErrorException e) {
+                circuitBreaker.onFailure();
+                throw e;
+            } catch (ResourceAccessException e) {
+                circuitBreaker.onFailure();
+                throw new StatsUnavailableException("Stats server is unreachable.", e);
+            } catch (HttpStatusCodeException e) {
+                circuitBreaker.onSuccess();
+                throw e;
+            } catch (RuntimeException e) {
+                circuitBreaker.release();
+                throw e;
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private static HttpComponentsClientHttpRequestFactory requestFactory(StatsClientProperties properties) {
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(properties.getConnectTimeout()))
+                .setSocketTimeout(Timeout.of(properties.getReadTimeout()))
+                .build();
+        return new HttpComponentsClientHttpRequestFactory(HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setDefaultConnectionConfig(connectionConfig)
+                        .build())
+                .build());
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("stats.client.calls.rejected")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static Long toEventId(String uri) {
+        if (uri == null || !uri.startsWith(EVENT_URI_PREFIX)) {
+            return null;
+        }
+        try {
+            return Long.valueOf(uri.substring(EVENT_URI_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static Counter reportCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("stats.client.reports")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static HttpEntity<byte[]> encode(List<EndpointHitDto> hits) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            StatsWireFormat.writeHits(hits, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(StatsWireFormat.CONTENT_TYPE));
+        return new HttpEntity<>(out.toByteArray(), headers);
     }
 
     private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method,
                                                           String path,
                                                           @Nullable Map<String, Object> parameters,
                                                           @Nullable T body) {
-        HttpEntity<T> requestEntity = null;
-        if (body != null) {
-            requestEntity = new HttpEntity<>(body);
+        HttpEntity<?> requestEntity;
+        if (body instanceof HttpEntity<?> entity) {
+            requestEntity = entity;
+        } else {
+            requestEntity = body != null ? new HttpEntity<>(body) : null;
         }
 
         ResponseEntity<Object> statsServerResponse;
         try {
-            if (parameters != null) {
-                statsServerResponse = rest.exchange(path, method, requestEntity, Object.class, parameters);
-            } else {
-                statsServerResponse = rest.exchange(path, method, requestEntity, Object.class);
-            }
+            statsServerResponse = call(() -> parameters != null
+                    ? rest.exchange(path, method, requestEntity, Object.class, parameters)
+                    : rest.exchange(path, method, requestEntity, Object.class));
         } catch (HttpStatusCodeException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsByteArray());
         }
@@ -0,0 +1,45 @@
+package ru.practicum.client;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "stats-client")
+public class StatsClientProperties {
+    private String url = "http://stats-server:9090";
+    private String wireFormat = "json";
+    private Duration connectTimeout = Duration.ofSeconds(1);
+    private Duration readTimeout = Duration.ofSeconds(2);
+    private Report report = new Report();
+    private Breaker breaker = new Breaker();
+    private Bulkhead bulkhead = new Bulkhead();
+
+    @Data
+    public static class Report {
+        private int maxInFlight = 64;
+        private Duration connectTimeout = Duration.ofSeconds(1);
+        private Duration timeout = Duration.ofSeconds(2);
+        private boolean batching = true;
+        private int batchSize = 500;
+        private Duration maxBatchLatency = Duration.ofMillis(200);
+        private int capacity = 10_000;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+    }
+
+    @Data
+    public static class Breaker {
+        private int window = 20;
+        private int minimumCalls = 10;
+        private double failureRateThreshold = 0.5;
+        private Duration openDuration = Duration.ofSeconds(30);
+        private int halfOpenCalls = 3;
+    }
+
+    @Data
+    public static class Bulkhead {
+        private int maxConcurrent = 20;
+        private Duration maxWait = Duration.ZERO;
+    }
+}
@@ -0,0 +1,14 @@
+package ru.practicum.client;
+
+/**
+ * Thrown instead of calling stats-server when it is failing or busy, or when the call itself failed.
+ */
+public class StatsUnavailableException extends RuntimeException {
+    public StatsUnavailableException(String message) {
+        super(message);
+    }
+
+    public StatsUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,70 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HitBufferTest {
+    private final BlockingQueue<List<EndpointHitDto>> sent = new LinkedBlockingQueue<>();
+    private final Semaphore permits = new Semaphore(0);
+    private SimpleMeterRegistry meterRegistry;
+    private HitBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        StatsClientProperties.Report properties = new StatsClientProperties.Report();
+        properties.setBatchSize(2);
+        properties.setCapacity(4);
+        properties.setMaxBatchLatency(Duration.ofHours(1));
+        properties.setTimeout(Duration.ofSeconds(1));
+        meterRegistry = new SimpleMeterRegistry();
+        buffer = new HitBuffer(properties, permits, sent::add, meterRegistry);
+    }
+
+    @Test
+    void hitsWaitInQueueUntilPermitIsReleased() throws InterruptedException {
+        buffer.offer(hit(1));
+        buffer.offer(hit(2));
+        buffer.offer(hit(3));
+        assertNull(sent.poll(200, TimeUnit.MILLISECONDS));
+
+        permits.release();
+        buffer.onPermitReleased();
+
+        assertEquals(List.of(hit(1), hit(2)), sent.poll(1, TimeUnit.SECONDS));
+        assertNull(sent.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(0, meterRegistry.counter("stats.client.buffer.dropped").count());
+    }
+
+    @Test
+    void fullQueueDropsByOverflowPolicyAndCloseSendsTheRest() throws InterruptedException {
+        for (int i = 1; i <= 5; i++) {
+            buffer.offer(hit(i));
+        }
+
+        permits.release(3);
+        buffer.close();
+
+        assertEquals(List.of(hit(2), hit(3)), sent.poll());
+        assertEquals(List.of(hit(4), hit(5)), sent.poll());
+        assertNull(sent.poll());
+        assertEquals(1, meterRegistry.counter("stats.client.buffer.dropped").count());
+        assertEquals(1, permits.availablePermits());
+    }
+
+    private static EndpointHitDto hit(int minute) {
+        return new EndpointHitDto("ewm-main-service", "/events/1", "10.0.0.1", LocalDateTime.of(2024, 3, 14, 10, minute));
+    }
+}
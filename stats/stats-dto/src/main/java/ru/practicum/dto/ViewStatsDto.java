@@ -1,12 +1,26 @@
 package ru.practicum.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
 @Builder
+@AllArgsConstructor
+@NoArgsConstructor
 public class ViewStatsDto {
     private String app;
     private String uri;
-    private Integer hits;
+    private Long hits;
+    /**
+     * Half-width of the 95% confidence interval around an estimated {@code hits}, absent when the count is exact.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long error;
+
+    public ViewStatsDto(String app, String uri, Long hits) {
+        this(app, uri, hits, null);
+    }
 }
@@ -0,0 +1,128 @@
+package ru.practicum.dto.codec;
+
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of hits and statistics, negotiated with the {@value #CONTENT_TYPE} content type.
+ *
+ * <pre>
+ * message := magic:byte version:byte count:varint record*
+ * hit     := app:string uri:string ip:string timestamp:zigzag-varint
+ * stats   := app:string uri:string hits:varint error:varint
+ * string  := 0 (null) | ((utf8 length + 1) &lt;&lt; 1) utf8 bytes | (index &lt;&lt; 1 | 1)
+ * </pre>
+ *
+ * <p>Hit messages are version 1 and stats messages version 2, which added the error of an estimated count as
+ * error + 1, or 0 for an exact count. Version 1 stats messages are still read.
+ *
+ * <p>Timestamps are epoch milliseconds in UTC, each written as the difference from the previous hit, so hits
+ * sent in time order take one or two bytes. Every new string is appended to a per-message table and later
+ * occurrences are written as a reference to it.
+ */
+public final class StatsWireFormat {
+    public static final String CONTENT_TYPE = "application/x-ewm-stats";
+
+    private static final int HITS_MAGIC = 'H';
+    private static final int STATS_MAGIC = 'S';
+    private static final int HITS_VERSION = 1;
+    private static final int STATS_VERSION = 2;
+
+    private StatsWireFormat() {
+    }
+
+    public static void writeHits(List<EndpointHitDto> hits, OutputStream out) throws IOException {
+        WireWriter writer = new WireWriter(out);
+        writeHeader(writer, HITS_MAGIC, HITS_VERSION, hits.size());
+        long previous = 0;
+        for (EndpointHitDto hit : hits) {
+            if (hit.getTimestamp() == null) {
+                throw new IllegalArgumentException("Hit timestamp is required, but was null in " + hit);
+            }
+            long timestamp = hit.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+            writer.writeString(hit.getApp());
+            writer.writeString(hit.getUri());
+            writer.writeString(hit.getIp());
+            writer.writeSignedVarLong(timestamp - previous);
+            previous = timestamp;
+        }
+        writer.flush();
+    }
+
+    public static List<EndpointHitDto> readHits(InputStream in) throws IOException {
+        WireReader reader = new WireReader(in);
+        readHeader(reader, HITS_MAGIC, HITS_VERSION);
+        int count = readCount(reader);
+        List<EndpointHitDto> hits = new ArrayList<>(Math.min(count, 1024));
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            String app = reader.readString();
+            String uri = reader.readString();
+            String ip = reader.readString();
+            previous += reader.readSignedVarLong();
+            hits.add(new EndpointHitDto(app, uri, ip, LocalDateTime.ofEpochSecond(Math.floorDiv(previous, 1000),
+                    (int) Math.floorMod(previous, 1000) * 1_000_000, ZoneOffset.UTC)));
+        }
+        return hits;
+    }
+
+    public static void writeStats(List<ViewStatsDto> stats, OutputStream out) throws IOException {
+        WireWriter writer = new WireWriter(out);
+        writeHeader(writer, STATS_MAGIC, STATS_VERSION, stats.size());
+        for (ViewStatsDto row : stats) {
+            writer.writeString(row.getApp());
+            writer.writeString(row.getUri());
+            writer.writeVarLong(row.getHits() != null ? row.getHits() : 0);
+            writer.writeVarLong(row.getError() != null ? row.getError() + 1 : 0);
+        }
+        writer.flush();
+    }
+
+    public static List<ViewStatsDto> readStats(InputStream in) throws IOException {
+        WireReader reader = new WireReader(in);
+        int version = readHeader(reader, STATS_MAGIC, STATS_VERSION);
+        int count = readCount(reader);
+        List<ViewStatsDto> stats = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            ViewStatsDto row = new ViewStatsDto(reader.readString(), reader.readString(), reader.readVarLong());
+            if (version >= 2) {
+                long error = reader.readVarLong();
+                row.setError(error > 0 ? error - 1 : null);
+            }
+            stats.add(row);
+        }
+        return stats;
+    }
+
+    private static void writeHeader(WireWriter writer, int magic, int version, int count) throws IOException {
+        writer.writeByte(magic);
+        writer.writeByte(version);
+        writer.writeVarLong(count);
+    }
+
+    // Returns the version of the message, which may be any from 1 up to the given one.
+    private static int readHeader(WireReader reader, int magic, int maxVersion) throws IOException {
+        int actualMagic = reader.readByte();
+        int version = reader.readByte();
+        if (actualMagic != magic || version < 1 || version > maxVersion) {
+            throw new IOException(String.format("Unexpected message header %d/%d, expected %d/%d.", actualMagic, version, magic, maxVersion));
+        }
+        return version;
+    }
+
+    private static int readCount(WireReader reader) throws IOException {
+        long count = reader.readVarLong();
+        if (count > Integer.MAX_VALUE) {
+            throw new IOException("Message record count is too large: " + count);
+        }
+        return (int) count;
+    }
+}
@@ -0,0 +1,69 @@
+package ru.practicum.dto.codec;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+class WireReader {
+    private final InputStream in;
+    private final List<String> strings = new ArrayList<>();
+
+    WireReader(InputStream in) {
+        this.in = new BufferedInputStream(in);
+    }
+
+    int readByte() throws IOException {
+        int value = in.read();
+        if (value < 0) {
+            throw new EOFException("Unexpected end of message.");
+        }
+        return value;
+    }
+
+    long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+    long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    String readString() throws IOException {
+        long header = readVarLong();
+        if (header == 0) {
+            return null;
+        }
+        if ((header & 1) == 1) {
+            long index = header >>> 1;
+            if (index >= strings.size()) {
+                throw new IOException("Reference to unknown string " + index + ".");
+            }
+            return strings.get((int) index);
+        }
+
+        long length = (header >>> 1) - 1;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("String is too long: " + length);
+        }
+        byte[] bytes = in.readNBytes((int) length);
+        if (bytes.length != length) {
+            throw new EOFException("Unexpected end of message.");
+        }
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        strings.add(value);
+        return value;
+    }
+}
@@ -0,0 +1,55 @@
+package ru.practicum.dto.codec;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+class WireWriter {
+    private final OutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    WireWriter(OutputStream out) {
+        this.out = new BufferedOutputStream(out);
+    }
+
+    void writeByte(int value) throws IOException {
+        out.write(value);
+    }
+
+    void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    void writeSignedVarLong(long value) throws IOException {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarLong(0);
+            return;
+        }
+
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeVarLong(((long) index << 1) | 1);
+            return;
+        }
+
+        strings.put(value, strings.size());
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong((long) (bytes.length + 1) << 1);
+        out.write(bytes);
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,129 @@
+package ru.practicum.dto.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.dto.codec.StatsWireFormat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Encode and decode throughput of {@link StatsWireFormat} for a batch of hits as main-service sends them and
+ * for a stats answer with estimated counts, {@value #RECORDS} records each. Scores are whole messages per
+ * second; the encoded size per record is logged alongside.
+ */
+@Slf4j
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsWireFormatBenchmarkTest {
+    private static final int RECORDS = 500;
+    private static final int URIS = 200;
+
+    private List<EndpointHitDto> hits;
+    private List<ViewStatsDto> stats;
+    private byte[] encodedHits;
+    private byte[] encodedStats;
+
+    @Setup
+    public void setUp() throws IOException {
+        hits = hits(RECORDS);
+        stats = stats(RECORDS);
+        encodedHits = encodeHits(hits);
+        encodedStats = encodeStats(stats);
+    }
+
+    @Benchmark
+    public byte[] encodeHits() throws IOException {
+        return encodeHits(hits);
+    }
+
+    @Benchmark
+    public List<EndpointHitDto> decodeHits() throws IOException {
+        return StatsWireFormat.readHits(new ByteArrayInputStream(encodedHits));
+    }
+
+    @Benchmark
+    public byte[] encodeStats() throws IOException {
+        return encodeStats(stats);
+    }
+
+    @Benchmark
+    public List<ViewStatsDto> decodeStats() throws IOException {
+        return StatsWireFormat.readStats(new ByteArrayInputStream(encodedStats));
+    }
+
+    @Test
+    void run() throws IOException, RunnerException {
+        log.info("StatsWireFormatBenchmark: {} bytes per hit, {} bytes per stats row in messages of {}",
+                String.format("%.1f", (double) encodeHits(hits(RECORDS)).length / RECORDS),
+                String.format("%.1f", (double) encodeStats(stats(RECORDS)).length / RECORDS), RECORDS);
+
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(StatsWireFormatBenchmarkTest.class.getName())
+                .build()).run();
+
+        assertFalse(results.isEmpty());
+        for (RunResult result : results) {
+            String benchmark = result.getParams().getBenchmark();
+            log.info("StatsWireFormatBenchmark: {} {} records/s", benchmark.substring(benchmark.lastIndexOf('.') + 1),
+                    Math.round(result.getPrimaryResult().getScore() * RECORDS));
+        }
+    }
+
+    private static List<EndpointHitDto> hits(int count) {
+        LocalDateTime now = LocalDateTime.of(2024, 3, 14, 10, 0);
+        List<EndpointHitDto> hits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            hits.add(new EndpointHitDto("ewm-main-service", "/events/" + i % URIS, "10.0." + i % 7 + "." + i % 250,
+                    now.plusNanos(i * 3_000_000L)));
+        }
+        return hits;
+    }
+
+    private static List<ViewStatsDto> stats(int count) {
+        List<ViewStatsDto> stats = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            stats.add(new ViewStatsDto("ewm-main-service", "/events/" + i, 100_000L - i * 150L, i % 2 == 0 ? 40L + i : null));
+        }
+        return stats;
+    }
+
+    private static byte[] encodeHits(List<EndpointHitDto> hits) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StatsWireFormat.writeHits(hits, out);
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeStats(List<ViewStatsDto> stats) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StatsWireFormat.writeStats(stats, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.dto.codec;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StatsWireFormatTest {
+    @Test
+    void hitsRoundTrip() throws IOException {
+        LocalDateTime now = LocalDateTime.of(2024, 3, 14, 10, 0, 0, 250_000_000);
+        List<EndpointHitDto> hits = List.of(
+                new EndpointHitDto("ewm-main-service", "/events/1", "10.0.0.1", now),
+                new EndpointHitDto("ewm-main-service", "/events/1", "10.0.0.2", now.minusSeconds(5)),
+                new EndpointHitDto("ewm-main-service", null, "10.0.0.1", now.plusDays(1)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StatsWireFormat.writeHits(hits, out);
+
+        assertEquals(hits, StatsWireFormat.readHits(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    void statsRoundTripKeepsError() throws IOException {
+        List<ViewStatsDto> stats = List.of(
+                new ViewStatsDto("ewm-main-service", "/events/1", 120L, 7L),
+                new ViewStatsDto("ewm-main-service", "/events/2", 3L, 0L),
+                new ViewStatsDto("ewm-main-service", "/events/3", 5L));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StatsWireFormat.writeStats(stats, out);
+
+        assertEquals(stats, StatsWireFormat.readStats(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    void readsStatsWithoutError() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WireWriter writer = new WireWriter(out);
+        writer.writeByte('S');
+        writer.writeByte(1);
+        writer.writeVarLong(1);
+        writer.writeString("ewm-main-service");
+        writer.writeString("/events/1");
+        writer.writeVarLong(42);
+        writer.flush();
+
+        assertEquals(List.of(new ViewStatsDto("ewm-main-service", "/events/1", 42L)),
+                StatsWireFormat.readStats(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        byte[] message = {'S', 3, 0};
+
+        assertThrows(IOException.class, () -> StatsWireFormat.readStats(new ByteArrayInputStream(message)));
+    }
+}
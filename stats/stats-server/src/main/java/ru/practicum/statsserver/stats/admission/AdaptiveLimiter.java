@@ -0,0 +1,66 @@
+package ru.practicum.statsserver.stats.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit adjusted by AIMD. A request completing within the latency threshold while the limit is
+ * at least half used raises the limit by one; a slower or failed request multiplies it by the backoff ratio,
+ * at most once per latency threshold, since every request in flight during one slow spell completes slowly.
+ * Requests beyond the current limit are rejected immediately rather than queued.
+ */
+public class AdaptiveLimiter {
+    private final AdmissionProperties.Limit properties;
+    private final LongSupplier nanoTime;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private long lastDecreaseNanos;
+    private boolean decreased;
+
+    public AdaptiveLimiter(AdmissionProperties.Limit properties) {
+        this(properties, System::nanoTime);
+    }
+
+    AdaptiveLimiter(AdmissionProperties.Limit properties, LongSupplier nanoTime) {
+        this.properties = properties;
+        this.nanoTime = nanoTime;
+        this.limit = properties.getInitialLimit();
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(long latencyNanos, boolean failed) {
+        int current = inFlight.getAndDecrement();
+        long threshold = properties.getLatencyThreshold().toNanos();
+        synchronized (this) {
+            if (failed || latencyNanos > threshold) {
+                long now = nanoTime.getAsLong();
+                if (!decreased || now - lastDecreaseNanos >= threshold) {
+                    limit = Math.max(properties.getMinLimit(), limit * properties.getBackoffRatio());
+                    lastDecreaseNanos = now;
+                    decreased = true;
+                }
+            } else if (current * 2 >= limit) {
+                limit = Math.min(properties.getMaxLimit(), limit + 1);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
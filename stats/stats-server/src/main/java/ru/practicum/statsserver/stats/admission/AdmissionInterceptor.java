@@ -0,0 +1,106 @@
+package ru.practicum.statsserver.stats.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.practicum.statsserver.stats.exception.exception.ServiceUnavailableException;
+import ru.practicum.statsserver.stats.exception.exception.TooManyRequestsException;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Admits ingest (POST) and query (GET) requests through separate {@link AdaptiveLimiter}s, so a burst of hits
+ * cannot take the connections that /stats needs. Queries answered as an NDJSON stream last as long as the
+ * transfer, which says nothing about the load, so they only take one of a fixed number of stream permits
+ * instead. Rejected hits get 429 and rejected queries 503, both with Retry-After.
+ */
+@Component
+public class AdmissionInterceptor implements HandlerInterceptor {
+    private static final String STARTED_AT = AdmissionInterceptor.class.getName() + ".startedAt";
+    private static final String PATH = AdmissionInterceptor.class.getName() + ".path";
+
+    private final AdmissionProperties properties;
+    private final Map<Path, AdaptiveLimiter> limiters = new EnumMap<>(Path.class);
+    private final Map<Path, Counter> rejectedCounters = new EnumMap<>(Path.class);
+    private final Semaphore streamPermits;
+
+    public AdmissionInterceptor(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.streamPermits = new Semaphore(properties.getStream().getMaxConcurrent());
+        limiters.put(Path.INGEST, new AdaptiveLimiter(properties.getIngest()));
+        limiters.put(Path.QUERY, new AdaptiveLimiter(properties.getQuery()));
+        limiters.forEach((path, limiter) -> {
+            String tag = path.name().toLowerCase();
+            Gauge.builder("stats.admission.limit", limiter, AdaptiveLimiter::getLimit).tag("path", tag).register(meterRegistry);
+            Gauge.builder("stats.admission.in.flight", limiter, AdaptiveLimiter::getInFlight).tag("path", tag).register(meterRegistry);
+            rejectedCounters.put(path, Counter.builder("stats.admission.rejected").tag("path", tag).register(meterRegistry));
+        });
+        int maxStreams = properties.getStream().getMaxConcurrent();
+        Gauge.builder("stats.admission.limit", () -> maxStreams).tag("path", "stream").register(meterRegistry);
+        Gauge.builder("stats.admission.in.flight", streamPermits, permits -> maxStreams - permits.availablePermits())
+                .tag("path", "stream").register(meterRegistry);
+        rejectedCounters.put(Path.STREAM, Counter.builder("stats.admission.rejected").tag("path", "stream").register(meterRegistry));
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+
+        Path path = pathOf(request);
+        boolean admitted = path == Path.STREAM ? streamPermits.tryAcquire() : limiters.get(path).tryAcquire();
+        if (!admitted) {
+            rejectedCounters.get(path).increment();
+            if (path == Path.INGEST) {
+                throw new TooManyRequestsException("Hit ingestion is over its concurrency limit.", properties.getRetryAfter());
+            }
+            throw new ServiceUnavailableException("Statistics queries are over their concurrency limit.", properties.getRetryAfter());
+        }
+        request.setAttribute(PATH, path);
+        request.setAttribute(STARTED_AT, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object startedAt = request.getAttribute(STARTED_AT);
+        if (startedAt == null) {
+            return;
+        }
+
+        Path path = (Path) request.getAttribute(PATH);
+        if (path == Path.STREAM) {
+            streamPermits.release();
+            return;
+        }
+        boolean failed = ex != null || response.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        limiters.get(path).release(System.nanoTime() - (long) startedAt, failed);
+    }
+
+    // The handler mapping exposes the media types its match produces, which for streamed answers is NDJSON only.
+    @SuppressWarnings("unchecked")
+    private static Path pathOf(HttpServletRequest request) {
+        if (HttpMethod.POST.matches(request.getMethod())) {
+            return Path.INGEST;
+        }
+        Set<MediaType> producible = (Set<MediaType>) request.getAttribute(HandlerMapping.PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE);
+        return producible != null && producible.contains(MediaType.APPLICATION_NDJSON) ? Path.STREAM : Path.QUERY;
+    }
+
+    private enum Path {
+        INGEST,
+        QUERY,
+        STREAM
+    }
+}
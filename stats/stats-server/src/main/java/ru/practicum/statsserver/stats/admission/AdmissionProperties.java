@@ -0,0 +1,33 @@
+package ru.practicum.statsserver.stats.admission;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "stats.admission")
+public class AdmissionProperties {
+    private boolean enabled = true;
+    private Duration retryAfter = Duration.ofSeconds(1);
+    private Limit ingest = new Limit();
+    private Limit query = new Limit();
+    private Stream stream = new Stream();
+
+    @Data
+    public static class Limit {
+        private int initialLimit = 20;
+        private int minLimit = 2;
+        private int maxLimit = 200;
+        private Duration latencyThreshold = Duration.ofMillis(500);
+        private double backoffRatio = 0.9;
+    }
+
+    /**
+     * Streamed (NDJSON) queries take as long as the transfer, so they are only capped and never adjust a limit.
+     */
+    @Data
+    public static class Stream {
+        private int maxConcurrent = 4;
+    }
+}
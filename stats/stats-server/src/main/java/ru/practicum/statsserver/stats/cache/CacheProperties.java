@@ -0,0 +1,15 @@
+package ru.practicum.statsserver.stats.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "stats.cache")
+public class CacheProperties {
+    private boolean enabled = true;
+    private int maxRows = 100_000;
+    private Duration settleTime = Duration.ofMinutes(5);
+    private Duration nearPresentTtl = Duration.ofSeconds(5);
+}
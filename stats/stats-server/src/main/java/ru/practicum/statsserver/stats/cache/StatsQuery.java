@@ -0,0 +1,35 @@
+package ru.practicum.statsserver.stats.cache;
+
+import ru.practicum.statsserver.stats.model.UniqueMode;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Normalized /stats parameters used as a cache key: uris are sorted and deduplicated, and an empty list means all uris.
+ */
+public record StatsQuery(LocalDateTime start,
+                         LocalDateTime end,
+                         List<String> uris,
+                         UniqueMode unique,
+                         Integer limit,
+                         boolean expand,
+                         Boolean approximate) {
+
+    public static StatsQuery of(LocalDateTime start,
+                                LocalDateTime end,
+                                List<String> uris,
+                                UniqueMode unique,
+                                Integer limit,
+                                boolean expand,
+                                Boolean approximate) {
+        List<String> normalized = uris != null && !uris.isEmpty()
+                ? uris.stream().distinct().sorted().toList()
+                : null;
+        return new StatsQuery(start, end, normalized, unique, limit, expand, approximate);
+    }
+
+    public boolean covers(LocalDateTime timestamp) {
+        return !timestamp.isBefore(start) && !timestamp.isAfter(end);
+    }
+}
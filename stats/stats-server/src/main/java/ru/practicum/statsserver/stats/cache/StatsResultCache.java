@@ -0,0 +1,131 @@
+package ru.practicum.statsserver.stats.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * LRU cache of /stats results bounded by the total number of cached rows. A query that ended more than
+ * {@code settleTime} ago is treated as immutable and kept until evicted; a query closer to the present
+ * expires after {@code nearPresentTtl}. Hits that arrive later than {@code settleTime} invalidate every
+ * cached query whose range contains them. Results are loaded outside the lock, so every invalidation also
+ * bumps a generation, and a result whose load overlapped one is returned but not cached.
+ */
+@Component
+public class StatsResultCache {
+    private final CacheProperties properties;
+    private final LinkedHashMap<StatsQuery, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter evictionCounter;
+    private long rows;
+    private long generation;
+
+    public StatsResultCache(CacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.hitCounter = Counter.builder("stats.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.missCounter = Counter.builder("stats.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.evictionCounter = Counter.builder("stats.cache.evictions").register(meterRegistry);
+        Gauge.builder("stats.cache.rows", this, StatsResultCache::getRows).register(meterRegistry);
+    }
+
+    public List<ViewStatsDto> get(StatsQuery query, Supplier<List<ViewStatsDto>> loader) {
+        if (!properties.isEnabled()) {
+            return loader.get();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        long loadedAt;
+        synchronized (this) {
+            Entry entry = entries.get(query);
+            if (entry != null && (entry.expiresAt() == null || entry.expiresAt().isAfter(now))) {
+                hitCounter.increment();
+                return entry.stats();
+            }
+            loadedAt = generation;
+        }
+
+        missCounter.increment();
+        List<ViewStatsDto> stats = loader.get();
+        if (stats.size() > properties.getMaxRows()) {
+            return stats;
+        }
+
+        boolean settled = query.end().isBefore(now.minus(properties.getSettleTime()));
+        LocalDateTime expiresAt = settled ? null : now.plus(properties.getNearPresentTtl());
+        synchronized (this) {
+            if (generation != loadedAt) {
+                return stats;
+            }
+            remove(entries.put(query, new Entry(stats, expiresAt)));
+            rows += stats.size();
+            evictOverflow();
+        }
+        return stats;
+    }
+
+    public void onHits(List<EndpointHit> endpointHits) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        LocalDateTime settled = LocalDateTime.now().minus(properties.getSettleTime());
+        List<LocalDateTime> late = endpointHits.stream()
+                .map(EndpointHit::getTimestamp)
+                .filter(timestamp -> timestamp.isBefore(settled))
+                .toList();
+        if (late.isEmpty()) {
+            return;
+        }
+
+        synchronized (this) {
+            generation++;
+            Iterator<Map.Entry<StatsQuery, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<StatsQuery, Entry> entry = iterator.next();
+                if (late.stream().anyMatch(entry.getKey()::covers)) {
+                    remove(entry.getValue());
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        rows = 0;
+    }
+
+    private synchronized long getRows() {
+        return rows;
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (rows > properties.getMaxRows() && iterator.hasNext()) {
+            remove(iterator.next());
+            iterator.remove();
+            evictionCounter.increment();
+        }
+    }
+
+    private void remove(Entry entry) {
+        if (entry != null) {
+            rows -= entry.stats().size();
+        }
+    }
+
+    private record Entry(List<ViewStatsDto> stats, LocalDateTime expiresAt) {
+    }
+}
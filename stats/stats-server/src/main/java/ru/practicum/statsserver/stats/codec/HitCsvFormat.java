@@ -0,0 +1,123 @@
+package ru.practicum.statsserver.stats.codec;
+
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.statsserver.stats.exception.exception.BadRequestException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Hits as CSV lines of {@code app,uri,ip,timestamp} with an optional header line. Fields containing commas or
+ * quotes are quoted, with quotes doubled as in RFC 4180.
+ */
+public final class HitCsvFormat {
+    public static final String CONTENT_TYPE = "text/csv";
+    public static final String HEADER = "app,uri,ip,timestamp";
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private HitCsvFormat() {
+    }
+
+    public static Iterator<EndpointHitDto> read(BufferedReader reader) {
+        return new Iterator<>() {
+            private long lineNumber;
+            private String next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public EndpointHitDto next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                EndpointHitDto hit = parse(next, lineNumber);
+                next = advance();
+                return hit;
+            }
+
+            private String advance() {
+                try {
+                    String line;
+                    do {
+                        line = reader.readLine();
+                        lineNumber++;
+                    } while (line != null && (line.isBlank() || lineNumber == 1 && line.trim().equalsIgnoreCase(HEADER)));
+                    return line;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    public static String write(EndpointHitDto hit) {
+        return String.join(",", quote(hit.getApp()), quote(hit.getUri()), quote(hit.getIp()),
+                hit.getTimestamp() != null ? hit.getTimestamp().format(TIMESTAMP) : "");
+    }
+
+    private static EndpointHitDto parse(String line, long lineNumber) {
+        List<String> fields = split(line, lineNumber);
+        if (fields.size() != 4) {
+            throw new BadRequestException(String.format("Line %d must have 4 fields, but has %d.", lineNumber, fields.size()));
+        }
+        try {
+            return new EndpointHitDto(fields.get(0), fields.get(1), fields.get(2),
+                    fields.get(3).isEmpty() ? null : LocalDateTime.parse(fields.get(3), TIMESTAMP));
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException(String.format("Line %d has an invalid timestamp %s.", lineNumber, fields.get(3)));
+        }
+    }
+
+    private static List<String> split(String line, long lineNumber) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new BadRequestException(String.format("Line %d has an unterminated quoted field.", lineNumber));
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,70 @@
+package ru.practicum.statsserver.stats.codec;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.dto.codec.StatsWireFormat;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Reads hits and writes statistics in the binary {@link StatsWireFormat} when a client asks for it.
+ * JSON stays the default because this converter is registered after Jackson.
+ */
+public class StatsWireFormatHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(StatsWireFormat.CONTENT_TYPE);
+
+    public StatsWireFormatHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return EndpointHitDto.class.equals(clazz) || List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return (EndpointHitDto.class.equals(type) || isListOf(type, EndpointHitDto.class)) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return isListOf(type != null ? type : clazz, ViewStatsDto.class) && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        List<EndpointHitDto> hits = StatsWireFormat.readHits(inputMessage.getBody());
+        if (!EndpointHitDto.class.equals(type)) {
+            return hits;
+        }
+        if (hits.size() != 1) {
+            throw new HttpMessageNotReadableException("Expected exactly one hit, but got " + hits.size() + ".", inputMessage);
+        }
+        return hits.get(0);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return read(clazz, null, inputMessage);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        StatsWireFormat.writeStats((List<ViewStatsDto>) object, outputMessage.getBody());
+    }
+
+    private static boolean isListOf(Type type, Class<?> elementType) {
+        ResolvableType resolved = ResolvableType.forType(type);
+        return List.class.isAssignableFrom(resolved.toClass()) && elementType.equals(resolved.getGeneric(0).resolve());
+    }
+}
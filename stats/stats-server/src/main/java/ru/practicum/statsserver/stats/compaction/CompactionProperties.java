@@ -0,0 +1,15 @@
+package ru.practicum.statsserver.stats.compaction;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "stats.compaction")
+public class CompactionProperties {
+    private boolean enabled = false;
+    private Duration age = Duration.ofDays(30);
+    private int chunkSize = 10_000;
+    private Duration refreshInterval = Duration.ofMinutes(1);
+}
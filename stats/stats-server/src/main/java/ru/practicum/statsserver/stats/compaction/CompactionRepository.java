@@ -0,0 +1,84 @@
+package ru.practicum.statsserver.stats.compaction;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.statsserver.stats.model.BucketKey;
+import ru.practicum.statsserver.stats.model.Granularity;
+import ru.practicum.statsserver.stats.repository.SketchRepository;
+import ru.practicum.statsserver.stats.sketch.HyperLogLog;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class CompactionRepository {
+    private static final String SELECT_COMPACTED_BEFORE = "SELECT compacted_before FROM stats_compaction WHERE id = 1";
+    private static final String UPDATE_COMPACTED_BEFORE = "UPDATE stats_compaction SET compacted_before = ? WHERE id = 1";
+    private static final String SELECT_OLDEST_HIT = "SELECT MIN(timestamp) FROM stats WHERE timestamp < ?";
+    private static final String FOLD_ROLLUPS = "INSERT INTO stats_rollup (granularity, bucket_start, app, uri, hits) " +
+            "SELECT 'DAY', ?, a.name, u.name, COUNT(*) " +
+            "FROM stats s " +
+            "JOIN stats_app a ON a.id = s.app_id " +
+            "JOIN stats_uri u ON u.id = s.uri_id " +
+            "WHERE s.timestamp >= ? AND s.timestamp < ? " +
+            "GROUP BY a.name, u.name " +
+            "ON CONFLICT ON CONSTRAINT uq_stats_rollup_bucket DO NOTHING";
+    private static final String SELECT_DISTINCT_IPS = "SELECT DISTINCT a.name AS app, u.name AS uri, host(s.ip) AS ip " +
+            "FROM stats s " +
+            "JOIN stats_app a ON a.id = s.app_id " +
+            "JOIN stats_uri u ON u.id = s.uri_id " +
+            "WHERE s.timestamp >= ? AND s.timestamp < ?";
+    private static final String DELETE_HITS = "DELETE FROM stats WHERE (id, timestamp) IN " +
+            "(SELECT id, timestamp FROM stats WHERE timestamp < ? LIMIT ?)";
+    private static final String DELETE_FINE_ROLLUPS = "DELETE FROM stats_rollup WHERE granularity IN (?, ?) AND bucket_start < ?";
+    private static final String DELETE_FINE_SKETCHES = "DELETE FROM stats_sketch WHERE granularity IN (?, ?) AND bucket_start < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SketchRepository sketchRepository;
+
+    public LocalDateTime findCompactedBefore() {
+        Timestamp compactedBefore = jdbcTemplate.queryForObject(SELECT_COMPACTED_BEFORE, Timestamp.class);
+        return compactedBefore != null ? compactedBefore.toLocalDateTime() : null;
+    }
+
+    public void updateCompactedBefore(LocalDateTime compactedBefore) {
+        jdbcTemplate.update(UPDATE_COMPACTED_BEFORE, Timestamp.valueOf(compactedBefore));
+    }
+
+    public LocalDateTime findOldestHit(LocalDateTime before) {
+        Timestamp oldest = jdbcTemplate.queryForObject(SELECT_OLDEST_HIT, Timestamp.class, Timestamp.valueOf(before));
+        return oldest != null ? oldest.toLocalDateTime() : null;
+    }
+
+    /**
+     * Makes sure the day has a daily rollup and sketch for every app and uri hit on it. Rollups kept up to date
+     * at ingestion are left alone and only missing ones, such as those of hits older than the rollups, are added.
+     * Sketches are always merged with the raw hits, which also restores updates a crash kept from being flushed.
+     */
+    public void foldDay(LocalDateTime day) {
+        Timestamp from = Timestamp.valueOf(day);
+        Timestamp to = Timestamp.valueOf(day.plusDays(1));
+        jdbcTemplate.update(FOLD_ROLLUPS, from, from, to);
+
+        Map<BucketKey, HyperLogLog> sketches = new HashMap<>();
+        jdbcTemplate.query(SELECT_DISTINCT_IPS, rs -> {
+            sketches.computeIfAbsent(new BucketKey(Granularity.DAY, day, rs.getString("app"), rs.getString("uri")), key -> new HyperLogLog())
+                    .add(rs.getString("ip"));
+        }, from, to);
+        sketchRepository.mergeAll(sketches);
+    }
+
+    public int deleteHits(LocalDateTime before, int limit) {
+        return jdbcTemplate.update(DELETE_HITS, Timestamp.valueOf(before), limit);
+    }
+
+    public void deleteFineAggregates(LocalDateTime before) {
+        Timestamp timestamp = Timestamp.valueOf(before);
+        jdbcTemplate.update(DELETE_FINE_ROLLUPS, Granularity.HOUR.name(), Granularity.MINUTE.name(), timestamp);
+        jdbcTemplate.update(DELETE_FINE_SKETCHES, Granularity.HOUR.name(), Granularity.MINUTE.name(), timestamp);
+    }
+}
@@ -0,0 +1,158 @@
+package ru.practicum.statsserver.stats.compaction;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statsserver.stats.cache.StatsResultCache;
+import ru.practicum.statsserver.stats.model.Granularity;
+import ru.practicum.statsserver.stats.partition.Partition;
+import ru.practicum.statsserver.stats.partition.PartitionProperties;
+import ru.practicum.statsserver.stats.partition.PartitionRepository;
+import ru.practicum.statsserver.stats.storage.StorageEngine;
+import ru.practicum.statsserver.stats.storage.StorageProperties;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Downsamples hits older than {@code stats.compaction.age} to daily precision. Every old day is first folded
+ * into daily rollups and sketches, then the compaction watermark is moved to the start of the cutoff day, and
+ * only after that are hourly and minute aggregates and raw hits before the watermark deleted. Partitions
+ * that end before the watermark are dropped or detached whole, and only the partition the watermark falls
+ * into and the default one are deleted from, in chunks of {@code chunkSize} rows per transaction. Queries
+ * reaching before the watermark are answered from daily aggregates only, see {@link #getCompactedBefore()}.
+ * The watermark is re-read every {@code refreshInterval}, since another instance may have moved it.
+ */
+@Component
+@Slf4j
+public class HitCompactor implements SmartInitializingSingleton {
+    private final CompactionRepository compactionRepository;
+    private final PartitionRepository partitionRepository;
+    private final CompactionProperties properties;
+    private final PartitionProperties partitionProperties;
+    private final StorageProperties storageProperties;
+    private final StatsResultCache statsResultCache;
+    private final TransactionTemplate transactionTemplate;
+    private volatile LocalDateTime compactedBefore;
+
+    public HitCompactor(CompactionRepository compactionRepository,
+                        PartitionRepository partitionRepository,
+                        CompactionProperties properties,
+                        PartitionProperties partitionProperties,
+                        StorageProperties storageProperties,
+                        StatsResultCache statsResultCache,
+                        PlatformTransactionManager transactionManager) {
+        this.compactionRepository = compactionRepository;
+        this.partitionRepository = partitionRepository;
+        this.properties = properties;
+        this.partitionProperties = partitionProperties;
+        this.storageProperties = storageProperties;
+        this.statsResultCache = statsResultCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (storageProperties.getEngine() == StorageEngine.POSTGRES) {
+            compactedBefore = compactionRepository.findCompactedBefore();
+            log.info("HitCompactor: Raw hits are compacted before {}.", compactedBefore);
+        }
+    }
+
+    /**
+     * Start of the first day that still has raw hits and fine-grained aggregates, or null if nothing was compacted.
+     */
+    public LocalDateTime getCompactedBefore() {
+        return compactedBefore;
+    }
+
+    // Results cached from raw hits that another instance has since compacted away are dropped as well.
+    @Scheduled(fixedDelayString = "${stats.compaction.refresh-interval:PT1M}")
+    public synchronized void refreshCompactedBefore() {
+        if (storageProperties.getEngine() != StorageEngine.POSTGRES) {
+            return;
+        }
+
+        try {
+            LocalDateTime stored = compactionRepository.findCompactedBefore();
+            if (!Objects.equals(stored, compactedBefore)) {
+                log.info("HitCompactor: Compaction watermark moved from {} to {} outside this instance.", compactedBefore, stored);
+                compactedBefore = stored;
+                statsResultCache.invalidateAll();
+            }
+        } catch (RuntimeException e) {
+            log.error("HitCompactor: Failed to re-read the compaction watermark.", e);
+        }
+    }
+
+    @Scheduled(cron = "${stats.compaction.cron:0 45 0 * * *}")
+    public void compact() {
+        if (!properties.isEnabled() || storageProperties.getEngine() != StorageEngine.POSTGRES) {
+            return;
+        }
+
+        try {
+            LocalDateTime cutoff = Granularity.DAY.floor(LocalDateTime.now().minus(properties.getAge()));
+            if (compactedBefore != null && !cutoff.isAfter(compactedBefore)) {
+                deleteCompacted(compactedBefore);
+                return;
+            }
+
+            foldBefore(cutoff);
+            deleteCompacted(cutoff);
+        } catch (RuntimeException e) {
+            log.error("HitCompactor: Compaction failed.", e);
+        }
+    }
+
+    /**
+     * Folds every day before the cutoff that still has raw hits into daily aggregates and moves the watermark to
+     * the cutoff unless it is already past it. Days folded before are folded again, which only adds what their
+     * aggregates miss, so this is also run before partitions are dropped for retention.
+     */
+    public synchronized void foldBefore(LocalDateTime cutoff) {
+        if (storageProperties.getEngine() != StorageEngine.POSTGRES) {
+            return;
+        }
+
+        LocalDateTime oldest = compactionRepository.findOldestHit(cutoff);
+        if (oldest != null) {
+            for (LocalDateTime day = Granularity.DAY.floor(oldest); day.isBefore(cutoff); day = day.plusDays(1)) {
+                LocalDateTime folded = day;
+                transactionTemplate.executeWithoutResult(status -> compactionRepository.foldDay(folded));
+            }
+        }
+
+        if (compactedBefore == null || cutoff.isAfter(compactedBefore)) {
+            transactionTemplate.executeWithoutResult(status -> compactionRepository.updateCompactedBefore(cutoff));
+            compactedBefore = cutoff;
+            log.info("HitCompactor: Hits before {} folded into daily aggregates.", cutoff);
+        }
+        statsResultCache.invalidateAll();
+    }
+
+    private void deleteCompacted(LocalDateTime before) {
+        transactionTemplate.executeWithoutResult(status -> compactionRepository.deleteFineAggregates(before));
+
+        // Deleting whole partitions row by row would only leave them full of dead tuples.
+        for (Partition partition : partitionRepository.findPartitions()) {
+            if (!partition.end().atStartOfDay().isAfter(before)) {
+                log.info("HitCompactor: Removing compacted partition {} ({}).", partition.name(), partitionProperties.getRetentionAction());
+                partitionRepository.removePartition(partition.name(), partitionProperties.getRetentionAction());
+            }
+        }
+
+        long deleted = 0;
+        int chunk;
+        do {
+            chunk = transactionTemplate.execute(status -> compactionRepository.deleteHits(before, properties.getChunkSize()));
+            deleted += chunk;
+        } while (chunk == properties.getChunkSize());
+        if (deleted > 0) {
+            log.info("HitCompactor: Deleted {} raw hits before {}.", deleted, before);
+        }
+    }
+}
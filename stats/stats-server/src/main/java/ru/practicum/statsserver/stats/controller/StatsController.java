@@ -1,20 +1,40 @@
 package ru.practicum.statsserver.stats.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.ImportProgressDto;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.dto.ViewStatsSeriesDto;
+import ru.practicum.dto.codec.StatsWireFormat;
+import ru.practicum.statsserver.stats.codec.HitCsvFormat;
+import ru.practicum.statsserver.stats.model.Granularity;
+import ru.practicum.statsserver.stats.model.UniqueMode;
 import ru.practicum.statsserver.stats.service.StatsService;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 @RestController
 @RequiredArgsConstructor
 public class StatsController {
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
@@ -22,11 +42,124 @@ public class StatsController {
         statsService.create(endpointHitDto);
     }
 
+    @PostMapping(value = "/hits", consumes = {MediaType.APPLICATION_JSON_VALUE, StatsWireFormat.CONTENT_TYPE})
+    @ResponseStatus(HttpStatus.CREATED)
+    public void createAll(@RequestBody List<EndpointHitDto> endpointHitDtos) {
+        statsService.createAll(endpointHitDtos);
+    }
+
+    @PostMapping(value = "/hits", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public void createAllFromNdjson(InputStream body) throws IOException {
+        try (MappingIterator<EndpointHitDto> hits = objectMapper.readerFor(EndpointHitDto.class).readValues(body)) {
+            statsService.createAll(hits.readAll());
+        }
+    }
+
+    @PostMapping(value = "/hits/import", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void importNdjson(InputStream body, HttpServletResponse response) throws IOException {
+        try (MappingIterator<EndpointHitDto> hits = objectMapper.readerFor(EndpointHitDto.class).readValues(body)) {
+            this.<ImportProgressDto>writeNdjson(response, progress -> statsService.importHits(hits, progress));
+        }
+    }
+
+    @PostMapping(value = "/hits/import", consumes = HitCsvFormat.CONTENT_TYPE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void importCsv(InputStream body, HttpServletResponse response) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            this.<ImportProgressDto>writeNdjson(response, progress -> statsService.importHits(HitCsvFormat.read(reader), progress));
+        }
+    }
+
+    @GetMapping(value = "/hits/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportNdjson(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                             HttpServletResponse response) throws IOException {
+        this.<EndpointHitDto>writeNdjson(response, consumer -> statsService.exportHits(start, end, consumer));
+    }
+
+    @GetMapping(value = "/hits/export", produces = HitCsvFormat.CONTENT_TYPE)
+    public void exportCsv(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                          @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                          HttpServletResponse response) throws IOException {
+        response.setContentType(HitCsvFormat.CONTENT_TYPE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try (PrintWriter writer = response.getWriter()) {
+            writer.println(HitCsvFormat.HEADER);
+            statsService.exportHits(start, end, hit -> writer.println(HitCsvFormat.write(hit)));
+        }
+    }
+
     @GetMapping("/stats")
     public List<ViewStatsDto> getStats(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
                                        @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
                                        @RequestParam(required = false) List<String> uris,
-                                       @RequestParam(defaultValue = "false") boolean unique) {
-        return statsService.getStats(start, end, uris, unique);
+                                       @RequestParam(defaultValue = "false") String unique,
+                                       @RequestParam(required = false) Integer limit,
+                                       @RequestParam(defaultValue = "false") boolean expand,
+                                       @RequestParam(required = false) Boolean approximate) {
+        return statsService.getStats(start, end, uris, UniqueMode.fromParameter(unique), limit, expand, approximate);
+    }
+
+    @GetMapping("/stats/series")
+    public List<ViewStatsSeriesDto> getSeries(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                              @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                              @RequestParam(required = false) List<String> uris,
+                                              @RequestParam(defaultValue = "hour") String interval,
+                                              @RequestParam(defaultValue = "false") String unique) {
+        return statsService.getSeries(start, end, uris, Granularity.fromParameter(interval), UniqueMode.fromParameter(unique));
+    }
+
+    @GetMapping(value = "/stats/series", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamSeries(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                             @RequestParam(required = false) List<String> uris,
+                             @RequestParam(defaultValue = "hour") String interval,
+                             @RequestParam(defaultValue = "false") String unique,
+                             HttpServletResponse response) throws IOException {
+        Granularity granularity = Granularity.fromParameter(interval);
+        UniqueMode uniqueMode = UniqueMode.fromParameter(unique);
+        this.<ViewStatsSeriesDto>writeNdjson(response, consumer -> statsService.streamSeries(start, end, uris, granularity, uniqueMode, consumer));
+    }
+
+    @GetMapping("/stats/live")
+    public List<ViewStatsDto> getLiveStats(@RequestParam(required = false) List<String> uris,
+                                           @RequestParam(defaultValue = "5m") String window) {
+        return statsService.getLiveStats(uris, window);
+    }
+
+    @GetMapping("/stats/top")
+    public List<ViewStatsDto> getTopStats(@RequestParam(required = false) String app,
+                                          @RequestParam(defaultValue = "1h") String window,
+                                          @RequestParam(defaultValue = "10") int k) {
+        return statsService.getTopStats(app, window, k);
+    }
+
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamStats(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                            @RequestParam(required = false) List<String> uris,
+                            @RequestParam(defaultValue = "false") String unique,
+                            @RequestParam(required = false) Integer limit,
+                            @RequestParam(defaultValue = "false") boolean expand,
+                            @RequestParam(required = false) Boolean approximate,
+                            HttpServletResponse response) throws IOException {
+        UniqueMode uniqueMode = UniqueMode.fromParameter(unique);
+        this.<ViewStatsDto>writeNdjson(response, consumer -> statsService.streamStats(start, end, uris, uniqueMode, limit, expand,
+                approximate, consumer));
+    }
+
+    private <T> void writeNdjson(HttpServletResponse response, Consumer<Consumer<T>> producer) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        try (SequenceWriter writer = objectMapper.writer()
+                .withRootValueSeparator("\n")
+                .writeValues(response.getOutputStream())) {
+            producer.accept(value -> {
+                try {
+                    writer.write(value);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
     }
 }
@@ -1,13 +1,20 @@
 package ru.practicum.statsserver.stats.exception.handler;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.practicum.statsserver.stats.exception.exception.BadRequestException;
+import ru.practicum.statsserver.stats.exception.exception.ServiceUnavailableException;
+import ru.practicum.statsserver.stats.exception.exception.TooManyRequestsException;
 import ru.practicum.statsserver.stats.exception.model.ApiError;
 
+import java.time.Duration;
+
 @RestControllerAdvice
 @Slf4j
 public class ErrorHandler {
@@ -18,4 +25,36 @@ public class ErrorHandler {
                 "Incorrectly made request.",
                 e.getMessage());
     }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiError handleJsonProcessingException(final JsonProcessingException e) {
+        return new ApiError(HttpStatus.BAD_REQUEST,
+                "Incorrectly made request.",
+                e.getOriginalMessage());
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<ApiError> handleServiceUnavailableException(final ServiceUnavailableException e) {
+        return withRetryAfter(HttpStatus.SERVICE_UNAVAILABLE, e.getRetryAfter())
+                .body(new ApiError(HttpStatus.SERVICE_UNAVAILABLE,
+                        "The service is temporarily unable to handle the request.",
+                        e.getMessage()));
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<ApiError> handleTooManyRequestsException(final TooManyRequestsException e) {
+        return withRetryAfter(HttpStatus.TOO_MANY_REQUESTS, e.getRetryAfter())
+                .body(new ApiError(HttpStatus.TOO_MANY_REQUESTS,
+                        "Too many requests are being processed.",
+                        e.getMessage()));
+    }
+
+    private static ResponseEntity.BodyBuilder withRetryAfter(HttpStatus status, Duration retryAfter) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(status);
+        if (retryAfter != null) {
+            builder.header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+        }
+        return builder;
+    }
 }
@@ -0,0 +1,6 @@
+package ru.practicum.statsserver.stats.ingest;
+
+public enum IngestMode {
+    SYNC,
+    ASYNC
+}
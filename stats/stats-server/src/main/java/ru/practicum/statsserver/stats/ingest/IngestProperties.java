@@ -0,0 +1,20 @@
+package ru.practicum.statsserver.stats.ingest;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "stats.ingest")
+public class IngestProperties {
+    private IngestMode mode = IngestMode.SYNC;
+    private int capacity = 10_000;
+    private int batchSize = 500;
+    private Duration maxBatchLatency = Duration.ofMillis(200);
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private Duration blockTimeout = Duration.ofSeconds(1);
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+    private int importBatchSize = 5_000;
+    private int sketchBufferCapacity = 100_000;
+}
@@ -0,0 +1,145 @@
+package ru.practicum.statsserver.stats.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statsserver.stats.model.BucketKey;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.Granularity;
+import ru.practicum.statsserver.stats.repository.SketchRepository;
+import ru.practicum.statsserver.stats.sketch.HyperLogLog;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Collects the sketches of committed hits in memory and merges them into {@code stats_sketch} from a background
+ * flush every {@code sketchFlushInterval}, one write per bucket. Ingest transactions therefore never lock the
+ * sketch rows of popular uris, which would serialize every ingest touching them. A crash loses at most one
+ * interval of sketch updates; compaction merges the raw hits of a day into its sketch before deleting them.
+ */
+@Component
+@Slf4j
+public class SketchBuffer implements SmartLifecycle {
+    private final IngestProperties properties;
+    private final SketchRepository sketchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Counter droppedCounter;
+    private Map<BucketKey, HyperLogLog> pending = new ConcurrentHashMap<>();
+    private volatile boolean running;
+
+    public SketchBuffer(IngestProperties properties,
+                        SketchRepository sketchRepository,
+                        PlatformTransactionManager transactionManager,
+                        MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.sketchRepository = sketchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        Gauge.builder("stats.ingest.sketch.pending", this, SketchBuffer::getPendingCount).register(meterRegistry);
+        this.droppedCounter = Counter.builder("stats.ingest.sketch.dropped").register(meterRegistry);
+    }
+
+    public void add(List<EndpointHit> endpointHits) {
+        swapLock.readLock().lock();
+        try {
+            for (EndpointHit hit : endpointHits) {
+                for (Granularity granularity : Granularity.values()) {
+                    BucketKey key = new BucketKey(granularity, granularity.floor(hit.getTimestamp()), hit.getApp(), hit.getUri());
+                    pending.compute(key, (k, sketch) -> {
+                        HyperLogLog updated = sketch != null ? sketch : new HyperLogLog();
+                        updated.add(hit.getIp());
+                        return updated;
+                    });
+                }
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.ingest.sketch-flush-interval:PT1S}")
+    public void flush() {
+        Map<BucketKey, HyperLogLog> deltas;
+        swapLock.writeLock().lock();
+        try {
+            deltas = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> sketchRepository.mergeAll(deltas));
+        } catch (RuntimeException e) {
+            log.error("SketchBuffer: Failed to merge {} sketches, keeping them for the next flush.", deltas.size(), e);
+            restore(deltas);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        flush();
+        int lost = getPendingCount();
+        if (lost > 0) {
+            log.warn("SketchBuffer: {} sketches could not be merged before shutdown.", lost);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Stop after the write-behind buffer has drained its hits and before segment storage closes.
+        return SmartLifecycle.DEFAULT_PHASE - 6144;
+    }
+
+    // Merging is idempotent, so deltas that may already be partly stored are simply merged again later.
+    private void restore(Map<BucketKey, HyperLogLog> deltas) {
+        swapLock.readLock().lock();
+        try {
+            deltas.forEach((key, delta) -> {
+                if (pending.size() >= properties.getSketchBufferCapacity() && !pending.containsKey(key)) {
+                    droppedCounter.increment();
+                    return;
+                }
+                pending.merge(key, delta, (current, restored) -> {
+                    current.merge(restored);
+                    return current;
+                });
+            });
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private int getPendingCount() {
+        swapLock.readLock().lock();
+        try {
+            return pending.size();
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+}
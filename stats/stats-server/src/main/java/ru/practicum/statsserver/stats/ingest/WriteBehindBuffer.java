@@ -0,0 +1,198 @@
+package ru.practicum.statsserver.stats.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsserver.stats.exception.exception.ServiceUnavailableException;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.service.HitWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accepts hits into a bounded queue and group-commits them from a single background writer.
+ * A batch is committed once it reaches {@code batchSize} hits or {@code maxBatchLatency} has passed
+ * since its first hit, whichever comes first. Stopping the context drains whatever is still queued.
+ */
+@Component
+@Slf4j
+public class WriteBehindBuffer implements SmartLifecycle {
+    private final IngestProperties properties;
+    private final HitWriter hitWriter;
+    private final BlockingQueue<EndpointHit> queue;
+    private final Timer commitTimer;
+    private final DistributionSummary batchSizeSummary;
+    private final Counter droppedCounter;
+    private final Counter rejectedCounter;
+    private final Counter failedCounter;
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public WriteBehindBuffer(IngestProperties properties, HitWriter hitWriter, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.hitWriter = hitWriter;
+        this.queue = new ArrayBlockingQueue<>(properties.getCapacity());
+        Gauge.builder("stats.ingest.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        this.commitTimer = Timer.builder("stats.ingest.commit.latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("stats.ingest.batch.size").register(meterRegistry);
+        this.droppedCounter = Counter.builder("stats.ingest.dropped").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("stats.ingest.rejected").register(meterRegistry);
+        this.failedCounter = Counter.builder("stats.ingest.failed").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.getMode() == IngestMode.ASYNC;
+    }
+
+    public void accept(EndpointHit endpointHit) {
+        if (!running) {
+            rejectedCounter.increment();
+            throw new ServiceUnavailableException("Hit ingestion is not running.");
+        }
+
+        switch (properties.getOverflowPolicy()) {
+            case BLOCK -> offerBlocking(endpointHit);
+            case DROP_OLDEST -> offerDroppingOldest(endpointHit);
+            case REJECT -> offerOrReject(endpointHit);
+        }
+    }
+
+    private void offerBlocking(EndpointHit endpointHit) {
+        try {
+            if (!queue.offer(endpointHit, properties.getBlockTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                rejectedCounter.increment();
+                throw new ServiceUnavailableException("Hit ingestion queue is full.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedCounter.increment();
+            throw new ServiceUnavailableException("Interrupted while waiting for the hit ingestion queue.");
+        }
+    }
+
+    private void offerDroppingOldest(EndpointHit endpointHit) {
+        while (!queue.offer(endpointHit)) {
+            if (queue.poll() != null) {
+                droppedCounter.increment();
+            }
+        }
+    }
+
+    private void offerOrReject(EndpointHit endpointHit) {
+        if (!queue.offer(endpointHit)) {
+            rejectedCounter.increment();
+            throw new ServiceUnavailableException("Hit ingestion queue is full.");
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::drainLoop, "stats-write-behind");
+        writerThread.start();
+        log.info("WriteBehindBuffer: Started with capacity={}, batchSize={}, maxBatchLatency={}, overflowPolicy={}.",
+                properties.getCapacity(), properties.getBatchSize(), properties.getMaxBatchLatency(),
+                properties.getOverflowPolicy());
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        log.info("WriteBehindBuffer: Stopping, {} hits left to flush.", queue.size());
+        try {
+            writerThread.join(properties.getShutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            log.warn("WriteBehindBuffer: Shutdown timeout elapsed, {} hits were not flushed.", queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Stop only after the web server has finished its graceful shutdown and no more hits arrive.
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void drainLoop() {
+        List<EndpointHit> batch = new ArrayList<>(properties.getBatchSize());
+        boolean interrupted = false;
+        while (running || !queue.isEmpty()) {
+            try {
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+        log.info("WriteBehindBuffer: Writer stopped, queue drained.");
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void fillBatch(List<EndpointHit> batch) throws InterruptedException {
+        int batchSize = properties.getBatchSize();
+        long maxLatency = properties.getMaxBatchLatency().toNanos();
+
+        EndpointHit first = queue.poll(maxLatency, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + maxLatency;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                return;
+            }
+            EndpointHit next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void commit(List<EndpointHit> batch) {
+        batchSizeSummary.record(batch.size());
+        long started = System.nanoTime();
+        try {
+            hitWriter.write(batch);
+        } catch (RuntimeException e) {
+            failedCounter.increment(batch.size());
+            log.error("WriteBehindBuffer: Failed to commit {} hits.", batch.size(), e);
+        } finally {
+            commitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+}
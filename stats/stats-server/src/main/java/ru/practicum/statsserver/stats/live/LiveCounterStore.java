@@ -0,0 +1,134 @@
+package ru.practicum.statsserver.stats.live;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a {@link SlidingWindowCounter} per uri and app for hits from the last {@code stats.live.window},
+ * so "views in the last few minutes" is answered from memory. At most {@code maxUris} counters are kept;
+ * hits for new uris beyond that are not tracked until idle counters have been evicted.
+ */
+@Component
+@Slf4j
+public class LiveCounterStore {
+    private final LiveProperties properties;
+    private final long resolutionSeconds;
+    private final int slotCount;
+    private final Map<String, Map<String, SlidingWindowCounter>> countersByUri = new ConcurrentHashMap<>();
+    private final AtomicInteger trackedCount = new AtomicInteger();
+    private final Counter untrackedCounter;
+
+    public LiveCounterStore(LiveProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.resolutionSeconds = Math.max(1, properties.getResolution().toSeconds());
+        this.slotCount = (int) Math.max(1, properties.getWindow().toSeconds() / resolutionSeconds);
+        Gauge.builder("stats.live.tracked", trackedCount, AtomicInteger::get).register(meterRegistry);
+        this.untrackedCounter = Counter.builder("stats.live.untracked").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public Duration getWindow() {
+        return Duration.ofSeconds(slotCount * resolutionSeconds);
+    }
+
+    public void record(EndpointHit endpointHit) {
+        long slot = toSlot(endpointHit.getTimestamp().atZone(ZoneId.systemDefault()).toInstant());
+        long now = toSlot(Instant.now());
+        if (slot <= now - slotCount || slot > now + 1) {
+            return;
+        }
+
+        SlidingWindowCounter counter = findOrCreate(endpointHit.getUri(), endpointHit.getApp());
+        if (counter != null) {
+            counter.increment(slot);
+        }
+    }
+
+    public List<ViewStatsDto> getCounts(Collection<String> uris, Duration window) {
+        long now = toSlot(Instant.now());
+        long from = now - Math.min(slotCount, Math.max(1, window.toSeconds() / resolutionSeconds)) + 1;
+
+        List<ViewStatsDto> result = new ArrayList<>();
+        Collection<String> keys = uris != null ? uris : countersByUri.keySet();
+        for (String uri : keys) {
+            Map<String, SlidingWindowCounter> countersByApp = countersByUri.get(uri);
+            if (countersByApp == null) {
+                continue;
+            }
+            countersByApp.forEach((app, counter) -> {
+                long hits = counter.sum(from, now);
+                if (hits > 0) {
+                    result.add(new ViewStatsDto(app, uri, hits));
+                }
+            });
+        }
+        result.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${stats.live.eviction-interval:PT1M}")
+    public void evictIdle() {
+        long oldest = toSlot(Instant.now()) - slotCount;
+        int evicted = 0;
+        for (Map.Entry<String, Map<String, SlidingWindowCounter>> entry : countersByUri.entrySet()) {
+            Map<String, SlidingWindowCounter> countersByApp = entry.getValue();
+            for (Map.Entry<String, SlidingWindowCounter> counter : countersByApp.entrySet()) {
+                if (counter.getValue().lastSlot() <= oldest && countersByApp.remove(counter.getKey(), counter.getValue())) {
+                    trackedCount.decrementAndGet();
+                    evicted++;
+                }
+            }
+            countersByUri.computeIfPresent(entry.getKey(), (uri, counters) -> counters.isEmpty() ? null : counters);
+        }
+        if (evicted > 0) {
+            log.info("LiveCounterStore: Evicted {} idle counters, {} still tracked.", evicted, trackedCount.get());
+        }
+    }
+
+    private SlidingWindowCounter findOrCreate(String uri, String app) {
+        Map<String, SlidingWindowCounter> countersByApp = countersByUri.get(uri);
+        SlidingWindowCounter counter = countersByApp != null ? countersByApp.get(app) : null;
+        if (counter != null) {
+            return counter;
+        }
+        if (trackedCount.get() >= properties.getMaxUris()) {
+            untrackedCounter.increment();
+            return null;
+        }
+
+        SlidingWindowCounter[] created = new SlidingWindowCounter[1];
+        countersByUri.compute(uri, (key, counters) -> {
+            Map<String, SlidingWindowCounter> result = counters != null ? counters : new ConcurrentHashMap<>();
+            created[0] = result.computeIfAbsent(app, a -> {
+                trackedCount.incrementAndGet();
+                return new SlidingWindowCounter(slotCount);
+            });
+            return result;
+        });
+        return created[0];
+    }
+
+    private long toSlot(Instant instant) {
+        return instant.getEpochSecond() / resolutionSeconds;
+    }
+}
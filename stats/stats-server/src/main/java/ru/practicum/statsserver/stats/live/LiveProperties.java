@@ -0,0 +1,15 @@
+package ru.practicum.statsserver.stats.live;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "stats.live")
+public class LiveProperties {
+    private boolean enabled = true;
+    private Duration resolution = Duration.ofSeconds(5);
+    private Duration window = Duration.ofMinutes(15);
+    private int maxUris = 5_000;
+}
@@ -0,0 +1,54 @@
+package ru.practicum.statsserver.stats.live;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ring of per-slot hit counters covering the last {@code slotCount} slots. Each slot remembers which
+ * slot number it currently holds and is reset by the first writer that moves it forward, so neither
+ * writers nor readers take a lock. A hit racing that reset may be lost, which is acceptable for a live view.
+ */
+class SlidingWindowCounter {
+    private final Slot[] slots;
+    private final AtomicLong lastSlot = new AtomicLong(Long.MIN_VALUE);
+
+    SlidingWindowCounter(int slotCount) {
+        this.slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    void increment(long slotNumber) {
+        Slot slot = slots[(int) Math.floorMod(slotNumber, (long) slots.length)];
+        long current = slot.number.get();
+        if (current > slotNumber) {
+            return;
+        }
+        if (current < slotNumber && slot.number.compareAndSet(current, slotNumber)) {
+            slot.count.reset();
+        }
+        slot.count.increment();
+        lastSlot.accumulateAndGet(slotNumber, Math::max);
+    }
+
+    long sum(long fromSlot, long toSlot) {
+        long sum = 0;
+        for (Slot slot : slots) {
+            long number = slot.number.get();
+            if (number >= fromSlot && number <= toSlot) {
+                sum += slot.count.sum();
+            }
+        }
+        return sum;
+    }
+
+    long lastSlot() {
+        return lastSlot.get();
+    }
+
+    private static final class Slot {
+        private final AtomicLong number = new AtomicLong(Long.MIN_VALUE);
+        private final LongAdder count = new LongAdder();
+    }
+}
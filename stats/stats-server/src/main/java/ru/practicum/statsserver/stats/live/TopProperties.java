@@ -0,0 +1,16 @@
+package ru.practicum.statsserver.stats.live;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "stats.top")
+public class TopProperties {
+    private boolean enabled = true;
+    private List<Duration> windows = List.of(Duration.ofMinutes(5), Duration.ofHours(1), Duration.ofHours(24));
+    private int bucketsPerWindow = 12;
+    private int capacity = 1_000;
+}
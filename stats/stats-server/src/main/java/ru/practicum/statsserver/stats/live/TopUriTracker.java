@@ -0,0 +1,128 @@
+package ru.practicum.statsserver.stats.live;
+
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.sketch.SpaceSaving;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the most viewed uris of every app over each configured window. A window is split into
+ * {@code bucketsPerWindow} buckets, each holding a {@link SpaceSaving} summary of {@code capacity} uris,
+ * so memory per app and window is fixed however many distinct uris are hit. Queries merge the buckets
+ * that are still inside the window, which makes the window slide in steps of one bucket.
+ */
+@Component
+public class TopUriTracker {
+    private final TopProperties properties;
+    private final Map<String, Map<Duration, WindowedSummary>> summariesByApp = new ConcurrentHashMap<>();
+
+    public TopUriTracker(TopProperties properties) {
+        this.properties = properties;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public List<Duration> getWindows() {
+        return properties.getWindows();
+    }
+
+    public int getCapacity() {
+        return properties.getCapacity();
+    }
+
+    public void record(EndpointHit endpointHit) {
+        Instant timestamp = endpointHit.getTimestamp().atZone(ZoneId.systemDefault()).toInstant();
+        summariesByApp.computeIfAbsent(endpointHit.getApp(), app -> createSummaries())
+                .values()
+                .forEach(summary -> summary.add(endpointHit.getUri(), timestamp));
+    }
+
+    public List<ViewStatsDto> getTop(String app, Duration window, int k) {
+        Instant now = Instant.now();
+        List<ViewStatsDto> result = new ArrayList<>();
+        summariesByApp.forEach((summaryApp, summaries) -> {
+            WindowedSummary summary = summaries.get(window);
+            if ((app == null || app.equals(summaryApp)) && summary != null) {
+                summary.top(now, k).forEach((uri, hits) -> result.add(new ViewStatsDto(summaryApp, uri, hits)));
+            }
+        });
+        result.sort(Comparator.comparing(ViewStatsDto::getApp)
+                .thenComparing(Comparator.comparing(ViewStatsDto::getHits).reversed()));
+        return result;
+    }
+
+    private Map<Duration, WindowedSummary> createSummaries() {
+        Map<Duration, WindowedSummary> summaries = new HashMap<>();
+        for (Duration window : properties.getWindows()) {
+            summaries.put(window, new WindowedSummary(window, properties.getBucketsPerWindow(), properties.getCapacity()));
+        }
+        return summaries;
+    }
+
+    private static final class WindowedSummary {
+        private final long bucketMillis;
+        private final SpaceSaving[] buckets;
+        private final long[] bucketNumbers;
+
+        private WindowedSummary(Duration window, int bucketCount, int capacity) {
+            this.bucketMillis = Math.max(1, window.toMillis() / bucketCount);
+            this.buckets = new SpaceSaving[bucketCount];
+            this.bucketNumbers = new long[bucketCount];
+            for (int i = 0; i < bucketCount; i++) {
+                buckets[i] = new SpaceSaving(capacity);
+                bucketNumbers[i] = Long.MIN_VALUE;
+            }
+        }
+
+        private void add(String uri, Instant timestamp) {
+            long number = timestamp.toEpochMilli() / bucketMillis;
+            long now = Instant.now().toEpochMilli() / bucketMillis;
+            if (number <= now - buckets.length || number > now + 1) {
+                return;
+            }
+
+            int index = (int) Math.floorMod(number, (long) buckets.length);
+            synchronized (buckets[index]) {
+                if (bucketNumbers[index] > number) {
+                    return;
+                }
+                if (bucketNumbers[index] < number) {
+                    buckets[index].clear();
+                    bucketNumbers[index] = number;
+                }
+                buckets[index].add(uri);
+            }
+        }
+
+        private Map<String, Long> top(Instant now, int k) {
+            long current = now.toEpochMilli() / bucketMillis;
+            Map<String, Long> merged = new HashMap<>();
+            for (int i = 0; i < buckets.length; i++) {
+                synchronized (buckets[i]) {
+                    if (bucketNumbers[i] > current - buckets.length && bucketNumbers[i] <= current) {
+                        buckets[i].forEach((uri, hits) -> merged.merge(uri, hits, Long::sum));
+                    }
+                }
+            }
+
+            Map<String, Long> top = new HashMap<>();
+            merged.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .limit(k)
+                    .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+            return top;
+        }
+    }
+}
@@ -2,16 +2,29 @@ package ru.practicum.statsserver.stats.mapper;
 
 import org.springframework.stereotype.Component;
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.statsserver.stats.exception.exception.BadRequestException;
 import ru.practicum.statsserver.stats.model.EndpointHit;
 
-import java.time.format.DateTimeFormatter;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.regex.Pattern;
 
 @Component
 public class EndpointHitMapper {
-    private static final String TIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
+    // Lengths of the stats_app and stats_uri dictionary names.
+    private static final int MAX_APP_LENGTH = 255;
+    private static final int MAX_URI_LENGTH = 2048;
+    private static final Pattern IPV6_CHARACTERS = Pattern.compile("[0-9a-fA-F:.]+");
+    private static final Pattern IPV4 = Pattern.compile("((25[0-5]|2[0-4]\\d|1?\\d?\\d)\\.){3}(25[0-5]|2[0-4]\\d|1?\\d?\\d)");
 
     public EndpointHit toEndpointHit(EndpointHitDto dto) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(TIME_FORMAT);
+        if (dto.getApp() == null || dto.getUri() == null || dto.getTimestamp() == null || !isIpAddress(dto.getIp())) {
+            throw new BadRequestException(String.format("Endpoint hit must have app, uri, timestamp and a valid ip, but was %s.", dto));
+        }
+        if (dto.getApp().length() > MAX_APP_LENGTH || dto.getUri().length() > MAX_URI_LENGTH) {
+            throw new BadRequestException(String.format("Endpoint hit app must be at most %d and uri at most %d characters long.",
+                    MAX_APP_LENGTH, MAX_URI_LENGTH));
+        }
         return EndpointHit.builder()
                 .app(dto.getApp())
                 .uri(dto.getUri())
@@ -19,4 +32,23 @@ public class EndpointHitMapper {
                 .timestamp(dto.getTimestamp())
                 .build();
     }
+
+    private static boolean isIpAddress(String ip) {
+        if (ip == null) {
+            return false;
+        }
+        if (!ip.contains(":")) {
+            return IPV4.matcher(ip).matches();
+        }
+        if (!IPV6_CHARACTERS.matcher(ip).matches()) {
+            return false;
+        }
+        // A hex digit or colon followed by only hex digits, colons and dots is parsed as a literal, never resolved through DNS.
+        try {
+            InetAddress.getByName(ip);
+            return true;
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
 }
@@ -0,0 +1,12 @@
+package ru.practicum.statsserver.stats.model;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+public record BucketKey(Granularity granularity, LocalDateTime bucketStart, String app, String uri) {
+    // A stable order keeps concurrent batches from locking the same buckets in opposite order.
+    public static final Comparator<BucketKey> LOCK_ORDER = Comparator.comparing(BucketKey::granularity)
+            .thenComparing(BucketKey::bucketStart)
+            .thenComparing(BucketKey::app)
+            .thenComparing(BucketKey::uri);
+}
@@ -0,0 +1,16 @@
+package ru.practicum.statsserver.stats.model;
+
+public enum DictionaryKind {
+    APP("stats_app"),
+    URI("stats_uri");
+
+    private final String table;
+
+    DictionaryKind(String table) {
+        this.table = table;
+    }
+
+    public String getTable() {
+        return table;
+    }
+}
@@ -0,0 +1,40 @@
+package ru.practicum.statsserver.stats.model;
+
+import ru.practicum.statsserver.stats.exception.exception.BadRequestException;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum Granularity {
+    DAY(ChronoUnit.DAYS),
+    HOUR(ChronoUnit.HOURS),
+    MINUTE(ChronoUnit.MINUTES);
+
+    private final ChronoUnit unit;
+
+    Granularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public static Granularity fromParameter(String interval) {
+        try {
+            return valueOf(interval.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(
+                    String.format("Parameter interval must be one of minute, hour or day, but was %s.", interval));
+        }
+    }
+
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+
+    public LocalDateTime floor(LocalDateTime timestamp) {
+        return timestamp.truncatedTo(unit);
+    }
+
+    public LocalDateTime ceil(LocalDateTime timestamp) {
+        LocalDateTime floor = floor(timestamp);
+        return floor.isEqual(timestamp) ? floor : floor.plus(1, unit);
+    }
+}
@@ -0,0 +1,34 @@
+package ru.practicum.statsserver.stats.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "stats_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uq_stats_rollup_bucket",
+                columnNames = {"granularity", "bucket_start", "app", "uri"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HitRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Granularity granularity;
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+    @Column(nullable = false)
+    private String app;
+    @Column(nullable = false)
+    private String uri;
+    @Column(nullable = false)
+    private Long hits;
+}
@@ -0,0 +1,16 @@
+package ru.practicum.statsserver.stats.model;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+@Value
+public class RollupSegment {
+    Granularity granularity;
+    LocalDateTime from;
+    LocalDateTime to;
+
+    public boolean isRaw() {
+        return granularity == null;
+    }
+}
@@ -0,0 +1,19 @@
+package ru.practicum.statsserver.stats.model;
+
+import ru.practicum.statsserver.stats.exception.exception.BadRequestException;
+
+public enum UniqueMode {
+    NONE,
+    EXACT,
+    APPROXIMATE;
+
+    public static UniqueMode fromParameter(String unique) {
+        return switch (unique.trim().toLowerCase()) {
+            case "false" -> NONE;
+            case "true" -> EXACT;
+            case "approx" -> APPROXIMATE;
+            default -> throw new BadRequestException(
+                    String.format("Parameter unique must be one of true, false or approx, but was %s.", unique));
+        };
+    }
+}
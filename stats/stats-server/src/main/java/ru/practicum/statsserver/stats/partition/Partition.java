@@ -0,0 +1,9 @@
+package ru.practicum.statsserver.stats.partition;
+
+import java.time.LocalDate;
+
+/**
+ * Range partition of the {@code stats} table holding hits before {@code end}.
+ */
+public record Partition(String name, LocalDate end) {
+}
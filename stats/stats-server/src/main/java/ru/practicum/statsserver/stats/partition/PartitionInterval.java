@@ -0,0 +1,28 @@
+package ru.practicum.statsserver.stats.partition;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+
+public enum PartitionInterval {
+    DAY(DateTimeFormatter.ofPattern("yyyyMMdd")),
+    MONTH(DateTimeFormatter.ofPattern("yyyyMM"));
+
+    private final DateTimeFormatter suffixFormatter;
+
+    PartitionInterval(DateTimeFormatter suffixFormatter) {
+        this.suffixFormatter = suffixFormatter;
+    }
+
+    public LocalDate floor(LocalDate date) {
+        return this == DAY ? date : date.with(TemporalAdjusters.firstDayOfMonth());
+    }
+
+    public LocalDate next(LocalDate start) {
+        return this == DAY ? start.plusDays(1) : start.plusMonths(1);
+    }
+
+    public String suffix(LocalDate start) {
+        return start.format(suffixFormatter);
+    }
+}
@@ -0,0 +1,123 @@
+package ru.practicum.statsserver.stats.partition;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statsserver.stats.compaction.HitCompactor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the range partitions of the {@code stats} table in step with time: partitions for the current
+ * and the next {@code premake} intervals are created ahead of the hits that will land in them, and
+ * partitions that end before the retention horizon are dropped or detached as a whole. Hits that already
+ * landed in the default partition are moved into a partition created for their range, and raw hits are
+ * folded into daily aggregates before their partition is dropped, so old ranges are answered from those.
+ */
+@Component
+@Slf4j
+public class PartitionMaintenance implements SmartInitializingSingleton {
+    private final PartitionRepository partitionRepository;
+    private final PartitionProperties properties;
+    private final HitCompactor hitCompactor;
+    private final TransactionTemplate transactionTemplate;
+
+    public PartitionMaintenance(PartitionRepository partitionRepository,
+                                PartitionProperties properties,
+                                HitCompactor hitCompactor,
+                                PlatformTransactionManager transactionManager) {
+        this.partitionRepository = partitionRepository;
+        this.properties = properties;
+        this.hitCompactor = hitCompactor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Runs after Flyway has migrated the schema and before the web server starts taking hits. A failure must not
+    // keep the server from starting, since hits without a partition still land in the default one.
+    @Override
+    public void afterSingletonsInstantiated() {
+        log.info("PartitionMaintenance: Checking that partitions exist for the next {} intervals.", properties.getPremake());
+        try {
+            LocalDate today = LocalDate.now();
+            ensurePartitions(today, premakeHorizon(today));
+        } catch (RuntimeException e) {
+            log.error("PartitionMaintenance: Could not create partitions, hits go to the default partition until the next maintenance.", e);
+        }
+    }
+
+    @Scheduled(cron = "${stats.partition.maintenance-cron:0 15 0 * * *}")
+    public void maintain() {
+        try {
+            LocalDate today = LocalDate.now();
+            ensurePartitions(today, premakeHorizon(today));
+            applyRetention();
+        } catch (RuntimeException e) {
+            log.error("PartitionMaintenance: Scheduled maintenance failed.", e);
+        }
+    }
+
+    public void ensurePartitions(LocalDate from, LocalDate to) {
+        PartitionInterval interval = properties.getInterval();
+        Set<String> existing = partitionRepository.findPartitions().stream()
+                .map(Partition::name)
+                .collect(Collectors.toSet());
+
+        for (LocalDate start = interval.floor(from); !start.isAfter(to); start = interval.next(start)) {
+            String name = partitionRepository.partitionName(interval, start);
+            if (existing.contains(name)) {
+                continue;
+            }
+            createPartition(name, start, interval.next(start));
+        }
+    }
+
+    public void applyRetention() {
+        if (properties.getRetention() == null) {
+            return;
+        }
+
+        LocalDate horizon = LocalDateTime.now().minus(properties.getRetention()).toLocalDate();
+        List<Partition> expired = partitionRepository.findPartitions().stream()
+                .filter(partition -> !partition.end().isAfter(horizon))
+                .toList();
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        // Old ranges are answered from daily aggregates once their raw hits are gone, including backfilled ones.
+        LocalDate foldedBefore = Collections.max(expired.stream().map(Partition::end).toList());
+        hitCompactor.foldBefore(foldedBefore.atStartOfDay());
+        for (Partition partition : expired) {
+            log.info("PartitionMaintenance: Removing partition {} older than {} ({}).", partition.name(), horizon,
+                    properties.getRetentionAction());
+            partitionRepository.removePartition(partition.name(), properties.getRetentionAction());
+        }
+    }
+
+    private void createPartition(String name, LocalDate start, LocalDate end) {
+        Integer moved = transactionTemplate.execute(status -> partitionRepository.createPartition(name, start, end));
+        if (moved != null && moved > 0) {
+            log.info("PartitionMaintenance: Created partition {} for [{}, {}) with {} hits moved from the default partition.",
+                    name, start, end, moved);
+        } else {
+            log.info("PartitionMaintenance: Created partition {} for [{}, {}).", name, start, end);
+        }
+    }
+
+    private LocalDate premakeHorizon(LocalDate today) {
+        PartitionInterval interval = properties.getInterval();
+        LocalDate horizon = interval.floor(today);
+        for (int i = 0; i < properties.getPremake(); i++) {
+            horizon = interval.next(horizon);
+        }
+        return horizon;
+    }
+}
@@ -0,0 +1,20 @@
+package ru.practicum.statsserver.stats.partition;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "stats.partition")
+public class PartitionProperties {
+    private PartitionInterval interval = PartitionInterval.MONTH;
+    private int premake = 3;
+    private Duration retention;
+    private RetentionAction retentionAction = RetentionAction.DROP;
+
+    public enum RetentionAction {
+        DROP,
+        DETACH
+    }
+}
@@ -0,0 +1,86 @@
+package ru.practicum.statsserver.stats.partition;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Repository
+@RequiredArgsConstructor
+public class PartitionRepository {
+    private static final String PARENT_TABLE = "stats";
+    private static final String DEFAULT_PARTITION = PARENT_TABLE + "_default";
+    private static final String PARTITION_PREFIX = PARENT_TABLE + "_p";
+    private static final Pattern PARTITION_NAME = Pattern.compile(PARTITION_PREFIX + "(\\d{8}|\\d{6})");
+    private static final String SELECT_PARTITIONS = "SELECT c.relname " +
+            "FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = ?";
+    private static final String SELECT_DEFAULT_HITS = "SELECT EXISTS " +
+            "(SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE timestamp >= ? AND timestamp < ?)";
+    private static final String MOVE_DEFAULT_HITS = "WITH moved AS " +
+            "(DELETE FROM " + DEFAULT_PARTITION + " WHERE timestamp >= ? AND timestamp < ? RETURNING *) " +
+            "INSERT INTO %s SELECT * FROM moved";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public String partitionName(PartitionInterval interval, LocalDate start) {
+        return PARTITION_PREFIX + interval.suffix(start);
+    }
+
+    public List<Partition> findPartitions() {
+        List<Partition> partitions = new ArrayList<>();
+        for (String name : jdbcTemplate.queryForList(SELECT_PARTITIONS, String.class, PARENT_TABLE)) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (!matcher.matches()) {
+                continue;
+            }
+            String suffix = matcher.group(1);
+            if (suffix.length() == 8) {
+                LocalDate start = LocalDate.parse(suffix, DateTimeFormatter.BASIC_ISO_DATE);
+                partitions.add(new Partition(name, PartitionInterval.DAY.next(start)));
+            } else {
+                LocalDate start = LocalDate.parse(suffix + "01", DateTimeFormatter.BASIC_ISO_DATE);
+                partitions.add(new Partition(name, PartitionInterval.MONTH.next(start)));
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * Creates the partition and returns how many hits were moved into it from the default partition. Hits there
+     * would make CREATE TABLE ... PARTITION OF fail, so they are moved into the new table before it is attached,
+     * with the default partition locked against writes. Must run in a transaction.
+     */
+    public int createPartition(String name, LocalDate start, LocalDate end) {
+        String bounds = String.format("FOR VALUES FROM ('%s') TO ('%s')", start, end);
+        Timestamp from = Timestamp.valueOf(start.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(end.atStartOfDay());
+        jdbcTemplate.execute("LOCK TABLE " + DEFAULT_PARTITION + " IN EXCLUSIVE MODE");
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(SELECT_DEFAULT_HITS, Boolean.class, from, to))) {
+            jdbcTemplate.execute(String.format("CREATE TABLE IF NOT EXISTS %s PARTITION OF %s %s", name, PARENT_TABLE, bounds));
+            return 0;
+        }
+
+        jdbcTemplate.execute(String.format("CREATE TABLE %s (LIKE %s INCLUDING DEFAULTS INCLUDING CONSTRAINTS)", name, PARENT_TABLE));
+        int moved = jdbcTemplate.update(String.format(MOVE_DEFAULT_HITS, name), from, to);
+        jdbcTemplate.execute(String.format("ALTER TABLE %s ATTACH PARTITION %s %s", PARENT_TABLE, name, bounds));
+        return moved;
+    }
+
+    public void removePartition(String name, PartitionProperties.RetentionAction action) {
+        if (action == PartitionProperties.RetentionAction.DETACH) {
+            jdbcTemplate.execute(String.format("ALTER TABLE %s DETACH PARTITION %s", PARENT_TABLE, name));
+        } else {
+            jdbcTemplate.execute(String.format("DROP TABLE %s", name));
+        }
+    }
+}
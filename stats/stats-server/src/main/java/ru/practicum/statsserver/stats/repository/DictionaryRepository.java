@@ -0,0 +1,55 @@
+package ru.practicum.statsserver.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.statsserver.stats.model.DictionaryKind;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class DictionaryRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertIfAbsent(DictionaryKind kind, String name) {
+        jdbcTemplate.update(String.format("INSERT INTO %s (name) VALUES (?) ON CONFLICT (name) DO NOTHING", kind.getTable()), name);
+    }
+
+    // Rows are inserted in name order, so concurrent batches with overlapping new names cannot deadlock.
+    public void insertAllIfAbsent(DictionaryKind kind, List<String> names) {
+        List<String> sorted = names.stream().sorted().toList();
+        jdbcTemplate.batchUpdate(String.format("INSERT INTO %s (name) VALUES (?) ON CONFLICT (name) DO NOTHING", kind.getTable()),
+                sorted, sorted.size(), (ps, name) -> ps.setString(1, name));
+    }
+
+    public Map<String, Integer> findIds(DictionaryKind kind, List<String> names) {
+        Map<String, Integer> ids = new HashMap<>();
+        jdbcTemplate.query(String.format("SELECT id, name FROM %s WHERE name = ANY (?)", kind.getTable()),
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", names.toArray())),
+                rs -> {
+                    ids.put(rs.getString("name"), rs.getInt("id"));
+                });
+        return ids;
+    }
+
+    public Integer findId(DictionaryKind kind, String name) {
+        List<Integer> ids = jdbcTemplate.queryForList(String.format("SELECT id FROM %s WHERE name = ?", kind.getTable()),
+                Integer.class, name);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    public List<String> findNamesByPrefix(DictionaryKind kind, String prefix, int limit) {
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return jdbcTemplate.queryForList(String.format("SELECT name FROM %s WHERE name LIKE ? ESCAPE '\\' LIMIT ?",
+                kind.getTable()), String.class, pattern, limit);
+    }
+
+    public String findName(DictionaryKind kind, int id) {
+        List<String> names = jdbcTemplate.queryForList(String.format("SELECT name FROM %s WHERE id = ?", kind.getTable()),
+                String.class, id);
+        return names.isEmpty() ? null : names.get(0);
+    }
+}
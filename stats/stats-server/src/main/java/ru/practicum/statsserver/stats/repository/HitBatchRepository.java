@@ -0,0 +1,60 @@
+package ru.practicum.statsserver.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.statsserver.stats.model.BucketKey;
+import ru.practicum.statsserver.stats.model.DictionaryKind;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.Granularity;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class HitBatchRepository {
+    private static final int BATCH_SIZE = 500;
+    private static final String INSERT_HIT = "INSERT INTO stats (app_id, uri_id, ip, timestamp) VALUES (?, ?, ?::inet, ?)";
+    private static final String UPSERT_ROLLUP = "INSERT INTO stats_rollup (granularity, bucket_start, app, uri, hits) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT ON CONSTRAINT uq_stats_rollup_bucket " +
+            "DO UPDATE SET hits = stats_rollup.hits + EXCLUDED.hits";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HitDictionary hitDictionary;
+
+    public void insertAll(List<EndpointHit> hits) {
+        jdbcTemplate.batchUpdate(INSERT_HIT, hits, BATCH_SIZE, (ps, hit) -> {
+            ps.setInt(1, hitDictionary.encode(DictionaryKind.APP, hit.getApp()));
+            ps.setInt(2, hitDictionary.encode(DictionaryKind.URI, hit.getUri()));
+            ps.setString(3, hit.getIp());
+            ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+        });
+    }
+
+    public void incrementRollups(List<EndpointHit> hits) {
+        Map<BucketKey, Long> increments = new HashMap<>();
+        for (EndpointHit hit : hits) {
+            for (Granularity granularity : Granularity.values()) {
+                BucketKey key = new BucketKey(granularity, granularity.floor(hit.getTimestamp()), hit.getApp(), hit.getUri());
+                increments.merge(key, 1L, Long::sum);
+            }
+        }
+
+        List<Map.Entry<BucketKey, Long>> entries = new ArrayList<>(increments.entrySet());
+        entries.sort(Map.Entry.comparingByKey(BucketKey.LOCK_ORDER));
+
+        jdbcTemplate.batchUpdate(UPSERT_ROLLUP, entries, BATCH_SIZE, (ps, entry) -> {
+            BucketKey key = entry.getKey();
+            ps.setString(1, key.granularity().name());
+            ps.setTimestamp(2, Timestamp.valueOf(key.bucketStart()));
+            ps.setString(3, key.app());
+            ps.setString(4, key.uri());
+            ps.setLong(5, entry.getValue());
+        });
+    }
+}
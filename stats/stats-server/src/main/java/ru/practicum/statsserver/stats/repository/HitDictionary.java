@@ -0,0 +1,133 @@
+package ru.practicum.statsserver.stats.repository;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statsserver.stats.model.DictionaryKind;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns app and uri names into the {@code stats_app} / {@code stats_uri} dictionaries and caches both
+ * directions in process, so hit rows only carry integer ids. New names are committed in their own
+ * transaction, which keeps a cached id valid even if the ingesting transaction later rolls back. Writers
+ * {@link #intern(List) intern} the names of a batch before opening their transaction, since interning a new
+ * name inside it would hold a second pooled connection.
+ */
+@Component
+public class HitDictionary {
+    private final DictionaryRepository dictionaryRepository;
+    private final TransactionTemplate requiresNew;
+    private final Map<DictionaryKind, Map<String, Integer>> idsByName = new EnumMap<>(DictionaryKind.class);
+    private final Map<DictionaryKind, Map<Integer, String>> namesById = new EnumMap<>(DictionaryKind.class);
+
+    public HitDictionary(DictionaryRepository dictionaryRepository, PlatformTransactionManager transactionManager) {
+        this.dictionaryRepository = dictionaryRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (DictionaryKind kind : DictionaryKind.values()) {
+            idsByName.put(kind, new ConcurrentHashMap<>());
+            namesById.put(kind, new ConcurrentHashMap<>());
+        }
+    }
+
+    public void intern(List<EndpointHit> endpointHits) {
+        Map<DictionaryKind, List<String>> missing = new EnumMap<>(DictionaryKind.class);
+        missing.put(DictionaryKind.APP, findMissing(DictionaryKind.APP, endpointHits.stream().map(EndpointHit::getApp).toList()));
+        missing.put(DictionaryKind.URI, findMissing(DictionaryKind.URI, endpointHits.stream().map(EndpointHit::getUri).toList()));
+        if (missing.values().stream().allMatch(List::isEmpty)) {
+            return;
+        }
+
+        Map<DictionaryKind, Map<String, Integer>> interned = requiresNew.execute(status -> {
+            Map<DictionaryKind, Map<String, Integer>> ids = new EnumMap<>(DictionaryKind.class);
+            missing.forEach((kind, names) -> {
+                if (!names.isEmpty()) {
+                    dictionaryRepository.insertAllIfAbsent(kind, names);
+                    ids.put(kind, dictionaryRepository.findIds(kind, names));
+                }
+            });
+            return ids;
+        });
+        interned.forEach((kind, ids) -> ids.forEach((name, id) -> remember(kind, name, id)));
+    }
+
+    public int encode(DictionaryKind kind, String name) {
+        Integer id = idsByName.get(kind).get(name);
+        if (id != null) {
+            return id;
+        }
+
+        id = requiresNew.execute(status -> {
+            Integer existing = dictionaryRepository.findId(kind, name);
+            if (existing != null) {
+                return existing;
+            }
+            dictionaryRepository.insertIfAbsent(kind, name);
+            return dictionaryRepository.findId(kind, name);
+        });
+        remember(kind, name, id);
+        return id;
+    }
+
+    /**
+     * Returns the ids of the known names, skipping unknown ones. Names missing from the cache are looked up
+     * in one query, since an expanded uri pattern may bring thousands of them.
+     */
+    public List<Integer> findIds(DictionaryKind kind, Collection<String> names) {
+        List<Integer> ids = new ArrayList<>(names.size());
+        List<String> missing = new ArrayList<>();
+        for (String name : names) {
+            Integer id = idsByName.get(kind).get(name);
+            if (id != null) {
+                ids.add(id);
+            } else {
+                missing.add(name);
+            }
+        }
+        if (!missing.isEmpty()) {
+            dictionaryRepository.findIds(kind, missing).forEach((name, id) -> {
+                remember(kind, name, id);
+                ids.add(id);
+            });
+        }
+        return ids;
+    }
+
+    public String decode(DictionaryKind kind, int id) {
+        String name = namesById.get(kind).get(id);
+        if (name != null) {
+            return name;
+        }
+
+        name = dictionaryRepository.findName(kind, id);
+        if (name != null) {
+            remember(kind, name, id);
+        }
+        return name;
+    }
+
+    private List<String> findMissing(DictionaryKind kind, List<String> names) {
+        Set<String> missing = new LinkedHashSet<>();
+        for (String name : names) {
+            if (!idsByName.get(kind).containsKey(name)) {
+                missing.add(name);
+            }
+        }
+        return new ArrayList<>(missing);
+    }
+
+    private void remember(DictionaryKind kind, String name, Integer id) {
+        idsByName.get(kind).put(name, id);
+        namesById.get(kind).put(id, name);
+    }
+}
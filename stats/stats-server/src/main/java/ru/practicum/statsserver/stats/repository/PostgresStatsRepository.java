@@ -0,0 +1,102 @@
+package ru.practicum.statsserver.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.dto.ViewStatsSeriesDto;
+import ru.practicum.statsserver.stats.model.DictionaryKind;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.Granularity;
+import ru.practicum.statsserver.stats.sketch.HyperLogLog;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "stats.storage", name = "engine", havingValue = "postgres", matchIfMissing = true)
+public class PostgresStatsRepository implements StatsRepository {
+    private static final String UNIQUE_STATS = "SELECT app_id, uri_id, COUNT(DISTINCT ip) AS hits " +
+            "FROM stats " +
+            "WHERE timestamp BETWEEN :from AND :to";
+    private static final String STATS_IN_RANGE = "SELECT app_id, uri_id, COUNT(*) AS hits " +
+            "FROM stats " +
+            "WHERE timestamp >= :from AND timestamp < :to";
+    private static final String URIS_FILTER = " AND uri_id = ANY (:uriIds)";
+    private static final String GROUP_BY = " GROUP BY app_id, uri_id";
+    private static final String ORDER_BY_HITS = " ORDER BY hits DESC";
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final HitDictionary hitDictionary;
+    private final HitBatchRepository hitBatchRepository;
+    private final StatsStreamRepository statsStreamRepository;
+    private final SketchRepository sketchRepository;
+
+    @Override
+    public void saveAll(List<EndpointHit> endpointHits) {
+        hitBatchRepository.insertAll(endpointHits);
+    }
+
+    @Override
+    public List<ViewStatsDto> getUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris, Integer limit) {
+        return query(UNIQUE_STATS, start, end, uris, GROUP_BY + ORDER_BY_HITS + (limit != null ? " LIMIT " + limit : ""));
+    }
+
+    @Override
+    public List<ViewStatsDto> getStatsInRange(LocalDateTime from, LocalDateTime to, List<String> uris) {
+        return query(STATS_IN_RANGE, from, to, uris, GROUP_BY);
+    }
+
+    @Override
+    public void mergeRawHitsInto(LocalDateTime from,
+                                 LocalDateTime to,
+                                 List<String> uris,
+                                 Map<String, Map<String, HyperLogLog>> sketches) {
+        sketchRepository.mergeRawHitsInto(from, to, uris, sketches);
+    }
+
+    @Override
+    public void streamSeries(LocalDateTime from,
+                             LocalDateTime to,
+                             List<String> uris,
+                             Granularity granularity,
+                             boolean unique,
+                             Consumer<ViewStatsSeriesDto> consumer) {
+        statsStreamRepository.streamRawSeries(from, to, uris, granularity, unique, consumer);
+    }
+
+    @Override
+    public void streamHits(LocalDateTime from, LocalDateTime to, Consumer<EndpointHitDto> consumer) {
+        statsStreamRepository.streamHits(from, to, consumer);
+    }
+
+    private List<ViewStatsDto> query(String select, LocalDateTime from, LocalDateTime to, List<String> uris, String tail) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        String sql = select;
+        if (uris != null) {
+            List<Integer> uriIds = hitDictionary.findIds(DictionaryKind.URI, uris);
+            if (uriIds.isEmpty()) {
+                return List.of();
+            }
+            sql += URIS_FILTER;
+            parameters.addValue("uriIds", uriIds.toArray(Integer[]::new));
+        }
+        return namedParameterJdbcTemplate.query(sql + tail, parameters, viewStatsRowMapper());
+    }
+
+    private RowMapper<ViewStatsDto> viewStatsRowMapper() {
+        return (rs, rowNum) -> new ViewStatsDto(hitDictionary.decode(DictionaryKind.APP, rs.getInt("app_id")),
+                hitDictionary.decode(DictionaryKind.URI, rs.getInt("uri_id")),
+                rs.getLong("hits"));
+    }
+}
@@ -0,0 +1,18 @@
+package ru.practicum.statsserver.stats.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statsserver.stats.model.Granularity;
+import ru.practicum.statsserver.stats.model.HitRollup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface RollupRepository extends JpaRepository<HitRollup, Long>, RollupUriRepository {
+    @Query("SELECT new ru.practicum.dto.ViewStatsDto(r.app, r.uri, SUM(r.hits)) " +
+            "FROM HitRollup r " +
+            "WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to " +
+            "GROUP BY r.app, r.uri")
+    List<ViewStatsDto> sumHits(Granularity granularity, LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,15 @@
+package ru.practicum.statsserver.stats.repository;
+
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statsserver.stats.model.Granularity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Rollup sums filtered by uri. The uris may come from an expanded pattern, so they are bound as one array
+ * parameter, which JPQL cannot express.
+ */
+public interface RollupUriRepository {
+    List<ViewStatsDto> sumHitsByUris(Granularity granularity, LocalDateTime from, LocalDateTime to, List<String> uris);
+}
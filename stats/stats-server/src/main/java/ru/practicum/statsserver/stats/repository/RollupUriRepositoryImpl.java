@@ -0,0 +1,33 @@
+package ru.practicum.statsserver.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statsserver.stats.model.Granularity;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class RollupUriRepositoryImpl implements RollupUriRepository {
+    private static final String SUM_HITS_BY_URIS = "SELECT app, uri, SUM(hits) AS hits " +
+            "FROM stats_rollup " +
+            "WHERE granularity = :granularity AND bucket_start >= :from AND bucket_start < :to " +
+            "AND uri = ANY (:uris) " +
+            "GROUP BY app, uri";
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Override
+    public List<ViewStatsDto> sumHitsByUris(Granularity granularity, LocalDateTime from, LocalDateTime to, List<String> uris) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("granularity", granularity.name())
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to))
+                .addValue("uris", uris.toArray(String[]::new));
+        return namedParameterJdbcTemplate.query(SUM_HITS_BY_URIS, parameters,
+                (rs, rowNum) -> new ViewStatsDto(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")));
+    }
+}
@@ -0,0 +1,436 @@
+package ru.practicum.statsserver.stats.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Repository;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.dto.ViewStatsSeriesDto;
+import ru.practicum.statsserver.stats.model.DictionaryKind;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.Granularity;
+import ru.practicum.statsserver.stats.sampling.ConfidenceInterval;
+import ru.practicum.statsserver.stats.sketch.HyperLogLog;
+import ru.practicum.statsserver.stats.storage.HitSegment;
+import ru.practicum.statsserver.stats.storage.StorageProperties;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Keeps raw hits in append-only memory-mapped {@link HitSegment} files instead of Postgres. A new segment is
+ * started every {@code rollInterval} or when the current one is full, and every batch is forced to disk before
+ * it is acknowledged. On startup existing segments are recovered read-only. Queries skip segments and blocks
+ * whose timestamp bounds miss the range. With {@code retention} set, segments holding only older hits are
+ * deleted when a segment is rolled. App and uri names are still interned in the Postgres dictionaries, which
+ * are written only once per new name.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(prefix = "stats.storage", name = "engine", havingValue = "segment")
+public class SegmentStatsRepository implements StatsRepository, SmartLifecycle {
+    private static final String SEGMENT_PREFIX = "hits-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int MIN_SAMPLED_BLOCKS = 30;
+
+    private final StorageProperties.Segment properties;
+    private final HitDictionary hitDictionary;
+    private final List<HitSegment> segments = new CopyOnWriteArrayList<>();
+    private HitSegment active;
+    private volatile boolean running;
+
+    public SegmentStatsRepository(StorageProperties storageProperties, HitDictionary hitDictionary) {
+        this.properties = storageProperties.getSegment();
+        this.hitDictionary = hitDictionary;
+    }
+
+    @Override
+    public synchronized void saveAll(List<EndpointHit> endpointHits) {
+        if (!running) {
+            throw new IllegalStateException("Segment storage is not running.");
+        }
+
+        try {
+            for (EndpointHit hit : endpointHits) {
+                ByteBuffer ip = ByteBuffer.wrap(toIpv6Bytes(hit.getIp()));
+                int appId = hitDictionary.encode(DictionaryKind.APP, hit.getApp());
+                int uriId = hitDictionary.encode(DictionaryKind.URI, hit.getUri());
+                long timestamp = toMillis(hit.getTimestamp());
+
+                if (System.currentTimeMillis() - active.getCreatedAt() >= properties.getRollInterval().toMillis()) {
+                    roll();
+                }
+                if (!active.append(timestamp, appId, uriId, ip.getLong(0), ip.getLong(8))) {
+                    roll();
+                    active.append(timestamp, appId, uriId, ip.getLong(0), ip.getLong(8));
+                }
+            }
+            active.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public List<ViewStatsDto> getUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris, Integer limit) {
+        Set<Integer> uriIds = findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Set<IpAddress>> ipsByKey = new HashMap<>();
+        long from = toMillis(start);
+        long to = toMillis(end) + 1;
+        scan(from, to, (timestamp, appId, uriId, ipHigh, ipLow) -> {
+            if (uriIds == null || uriIds.contains(uriId)) {
+                ipsByKey.computeIfAbsent(toKey(appId, uriId), key -> new HashSet<>()).add(new IpAddress(ipHigh, ipLow));
+            }
+        });
+
+        Map<Long, Long> hitsByKey = new HashMap<>();
+        ipsByKey.forEach((key, ips) -> hitsByKey.put(key, (long) ips.size()));
+        List<ViewStatsDto> result = toViewStats(hitsByKey);
+        result.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+        return limit != null && result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    @Override
+    public List<ViewStatsDto> getStatsInRange(LocalDateTime from, LocalDateTime to, List<String> uris) {
+        Set<Integer> uriIds = findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Long> hitsByKey = new HashMap<>();
+        scan(toMillis(from), toMillis(to), (timestamp, appId, uriId, ipHigh, ipLow) -> {
+            if (uriIds == null || uriIds.contains(uriId)) {
+                hitsByKey.merge(toKey(appId, uriId), 1L, Long::sum);
+            }
+        });
+        return toViewStats(hitsByKey);
+    }
+
+    // Sketches are kept only for the duration of a query, so ips are hashed from their stored bytes directly.
+    @Override
+    public void mergeRawHitsInto(LocalDateTime from,
+                                 LocalDateTime to,
+                                 List<String> uris,
+                                 Map<String, Map<String, HyperLogLog>> sketches) {
+        Set<Integer> uriIds = findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return;
+        }
+
+        Map<Long, HyperLogLog> sketchesByKey = new HashMap<>();
+        scan(toMillis(from), toMillis(to), (timestamp, appId, uriId, ipHigh, ipLow) -> {
+            if (uriIds == null || uriIds.contains(uriId)) {
+                sketchesByKey.computeIfAbsent(toKey(appId, uriId), key -> new HyperLogLog()).addHash(mix(mix(ipHigh) ^ ipLow));
+            }
+        });
+        sketchesByKey.forEach((key, sketch) -> sketches
+                .computeIfAbsent(hitDictionary.decode(DictionaryKind.APP, (int) (key >>> 32)), app -> new HashMap<>())
+                .merge(hitDictionary.decode(DictionaryKind.URI, (int) (long) key), sketch, (current, added) -> {
+                    current.merge(added);
+                    return current;
+                }));
+    }
+
+    // Reads a deterministic subset of whole blocks, so a repeated query returns the same estimate. The sizes of the
+    // blocks overlapping the range tell how many hits an exact scan would read before any of them is read.
+    @Override
+    public List<ViewStatsDto> sampleStatsInRange(LocalDateTime from,
+                                                 LocalDateTime to,
+                                                 List<String> uris,
+                                                 double rate,
+                                                 long rowThreshold) {
+        Set<Integer> uriIds = findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return List.of();
+        }
+
+        long fromMillis = toMillis(from);
+        long toMillis = toMillis(to);
+        int totalBlocks = 0;
+        long totalHits = 0;
+        Map<HitSegment, List<Integer>> sampledBlocks = new HashMap<>();
+        for (HitSegment segment : segments) {
+            if (!segment.overlaps(fromMillis, toMillis)) {
+                continue;
+            }
+            int blocks = segment.getBlockCount();
+            for (int block = 0; block < blocks; block++) {
+                if (!segment.overlaps(block, fromMillis, toMillis)) {
+                    continue;
+                }
+                totalBlocks++;
+                totalHits += segment.getBlockSize(block);
+                if (isSampled(segment, block, rate)) {
+                    sampledBlocks.computeIfAbsent(segment, s -> new ArrayList<>()).add(block);
+                }
+            }
+        }
+        int sampled = sampledBlocks.values().stream().mapToInt(List::size).sum();
+        if (totalHits < rowThreshold || totalBlocks * rate < MIN_SAMPLED_BLOCKS || sampled < 2) {
+            return getStatsInRange(from, to, uris);
+        }
+
+        Map<Long, double[]> sumsByKey = new HashMap<>();
+        Map<Long, Long> blockHits = new HashMap<>();
+        sampledBlocks.forEach((segment, blocks) -> {
+            for (int block : blocks) {
+                blockHits.clear();
+                segment.scanBlock(block, fromMillis, toMillis, (timestamp, appId, uriId, ipHigh, ipLow) -> {
+                    if (uriIds == null || uriIds.contains(uriId)) {
+                        blockHits.merge(toKey(appId, uriId), 1L, Long::sum);
+                    }
+                });
+                blockHits.forEach((key, hits) -> {
+                    double[] sums = sumsByKey.computeIfAbsent(key, k -> new double[2]);
+                    sums[0] += hits;
+                    sums[1] += (double) hits * hits;
+                });
+            }
+        });
+
+        double scale = (double) totalBlocks / sampled;
+        List<ViewStatsDto> result = new ArrayList<>(sumsByKey.size());
+        int total = totalBlocks;
+        sumsByKey.forEach((key, sums) -> result.add(new ViewStatsDto(
+                hitDictionary.decode(DictionaryKind.APP, (int) (key >>> 32)),
+                hitDictionary.decode(DictionaryKind.URI, (int) (long) key),
+                Math.round(sums[0] * scale),
+                ConfidenceInterval.ofClusterSample(sums[0], sums[1], sampled, total))));
+        return result;
+    }
+
+    @Override
+    public void streamSeries(LocalDateTime from,
+                             LocalDateTime to,
+                             List<String> uris,
+                             Granularity granularity,
+                             boolean unique,
+                             Consumer<ViewStatsSeriesDto> consumer) {
+        Set<Integer> uriIds = findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return;
+        }
+
+        long bucketMillis = granularity.getUnit().getDuration().toMillis();
+        Map<Long, Map<Long, Set<IpAddress>>> ipsByBucket = new TreeMap<>();
+        Map<Long, Map<Long, Long>> hitsByBucket = new TreeMap<>();
+        scan(toMillis(from), toMillis(to), (timestamp, appId, uriId, ipHigh, ipLow) -> {
+            if (uriIds != null && !uriIds.contains(uriId)) {
+                return;
+            }
+            long bucket = Math.floorDiv(timestamp, bucketMillis) * bucketMillis;
+            if (unique) {
+                ipsByBucket.computeIfAbsent(bucket, b -> new HashMap<>())
+                        .computeIfAbsent(toKey(appId, uriId), key -> new HashSet<>())
+                        .add(new IpAddress(ipHigh, ipLow));
+            } else {
+                hitsByBucket.computeIfAbsent(bucket, b -> new HashMap<>())
+                        .merge(toKey(appId, uriId), 1L, Long::sum);
+            }
+        });
+
+        ipsByBucket.forEach((bucket, ipsByKey) -> ipsByKey.forEach((key, ips) ->
+                hitsByBucket.computeIfAbsent(bucket, b -> new HashMap<>()).put(key, (long) ips.size())));
+        hitsByBucket.forEach((bucket, hitsByKey) -> toViewStats(hitsByKey).forEach(viewStats ->
+                consumer.accept(new ViewStatsSeriesDto(viewStats.getApp(), viewStats.getUri(),
+                        LocalDateTime.ofEpochSecond(bucket / 1000, 0, ZoneOffset.UTC), viewStats.getHits()))));
+    }
+
+    @Override
+    public void streamHits(LocalDateTime from, LocalDateTime to, Consumer<EndpointHitDto> consumer) {
+        scan(toMillis(from), toMillis(to), (timestamp, appId, uriId, ipHigh, ipLow) ->
+                consumer.accept(new EndpointHitDto(hitDictionary.decode(DictionaryKind.APP, appId),
+                        hitDictionary.decode(DictionaryKind.URI, uriId),
+                        fromIpv6Bytes(ByteBuffer.allocate(16).putLong(ipHigh).putLong(ipLow).array()),
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneOffset.UTC))));
+    }
+
+    @Override
+    public synchronized void start() {
+        try {
+            Path directory = Paths.get(properties.getDirectory());
+            Files.createDirectories(directory);
+
+            List<Path> paths;
+            try (Stream<Path> files = Files.list(directory)) {
+                paths = files.filter(path -> path.getFileName().toString().matches(SEGMENT_PREFIX + "\\d+\\" + SEGMENT_SUFFIX))
+                        .sorted()
+                        .toList();
+            }
+            for (Path path : paths) {
+                HitSegment segment = HitSegment.recover(path, properties.getIndexInterval(), createdAt(path));
+                segments.add(segment);
+                log.info("SegmentStatsRepository: Recovered segment {} with {} hits.", path.getFileName(), segment.getCount());
+            }
+
+            retireExpired();
+            openSegment();
+            running = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        try {
+            if (active != null) {
+                active.seal();
+            }
+            for (HitSegment segment : segments) {
+                segment.close();
+            }
+        } catch (IOException e) {
+            log.error("SegmentStatsRepository: Failed to close segments.", e);
+        }
+        log.info("SegmentStatsRepository: Stopped, {} segments closed.", segments.size());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Open before the web server starts and close only after the write-behind buffer has drained.
+        return SmartLifecycle.DEFAULT_PHASE - 8192;
+    }
+
+    private void roll() throws IOException {
+        active.seal();
+        log.info("SegmentStatsRepository: Sealed segment {} with {} hits.", active.getPath().getFileName(), active.getCount());
+        openSegment();
+        retireExpired();
+    }
+
+    // Scans still reading a retired segment keep its mapping, which stays valid after the file is deleted.
+    private void retireExpired() throws IOException {
+        if (properties.getRetention() == null) {
+            return;
+        }
+
+        long horizon = toMillis(LocalDateTime.now().minus(properties.getRetention()));
+        for (HitSegment segment : segments) {
+            if (segment != active && segment.getMaxTimestamp() < horizon) {
+                segments.remove(segment);
+                segment.close();
+                Files.deleteIfExists(segment.getPath());
+                log.info("SegmentStatsRepository: Retired segment {} with {} hits older than {}.",
+                        segment.getPath().getFileName(), segment.getCount(), properties.getRetention());
+            }
+        }
+    }
+
+    // Segments whose bounds miss the range are skipped without looking at their blocks.
+    private void scan(long from, long to, HitSegment.HitVisitor visitor) {
+        for (HitSegment segment : segments) {
+            if (segment.overlaps(from, to)) {
+                segment.scan(from, to, visitor);
+            }
+        }
+    }
+
+    private void openSegment() throws IOException {
+        long createdAt = System.currentTimeMillis();
+        Path path = Paths.get(properties.getDirectory(), String.format("%s%020d%s", SEGMENT_PREFIX, createdAt, SEGMENT_SUFFIX));
+        while (Files.exists(path)) {
+            createdAt++;
+            path = Paths.get(properties.getDirectory(), String.format("%s%020d%s", SEGMENT_PREFIX, createdAt, SEGMENT_SUFFIX));
+        }
+        active = HitSegment.create(path, properties.getCapacity().toBytes(), properties.getIndexInterval(), createdAt);
+        segments.add(active);
+    }
+
+    private Set<Integer> findUriIds(List<String> uris) {
+        return uris != null ? new HashSet<>(hitDictionary.findIds(DictionaryKind.URI, uris)) : null;
+    }
+
+    private List<ViewStatsDto> toViewStats(Map<Long, Long> hitsByKey) {
+        List<ViewStatsDto> result = new ArrayList<>(hitsByKey.size());
+        hitsByKey.forEach((key, hits) -> result.add(new ViewStatsDto(
+                hitDictionary.decode(DictionaryKind.APP, (int) (key >>> 32)),
+                hitDictionary.decode(DictionaryKind.URI, (int) (long) key),
+                hits)));
+        return result;
+    }
+
+    private static boolean isSampled(HitSegment segment, int block, double rate) {
+        return (mix(segment.getCreatedAt() * 0x9E3779B97F4A7C15L + block) >>> 11) * 0x1.0p-53 < rate;
+    }
+
+    private static long mix(long value) {
+        long hash = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+
+    private static long toKey(int appId, int uriId) {
+        return ((long) appId << 32) | (uriId & 0xFFFFFFFFL);
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static long createdAt(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] toIpv6Bytes(String ip) {
+        byte[] address;
+        try {
+            // The mapper only lets ip literals through, so this never resolves a host name.
+            address = InetAddress.getByName(ip).getAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid ip address " + ip, e);
+        }
+        if (address.length == 16) {
+            return address;
+        }
+        byte[] mapped = new byte[16];
+        mapped[10] = (byte) 0xFF;
+        mapped[11] = (byte) 0xFF;
+        System.arraycopy(address, 0, mapped, 12, 4);
+        return mapped;
+    }
+
+    private static String fromIpv6Bytes(byte[] address) {
+        try {
+            // Ipv4-mapped addresses come back as plain ipv4 literals.
+            return InetAddress.getByAddress(address).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Invalid stored ip address", e);
+        }
+    }
+
+    private record IpAddress(long high, long low) {
+    }
+}
@@ -0,0 +1,135 @@
+package ru.practicum.statsserver.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.statsserver.stats.model.BucketKey;
+import ru.practicum.statsserver.stats.model.DictionaryKind;
+import ru.practicum.statsserver.stats.model.Granularity;
+import ru.practicum.statsserver.stats.sketch.HyperLogLog;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class SketchRepository {
+    private static final int BATCH_SIZE = 500;
+    private static final int LOCK_CHUNK_SIZE = 1000;
+    private static final String INSERT_SKETCH = "INSERT INTO stats_sketch (granularity, bucket_start, app, uri, registers) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT ON CONSTRAINT uq_stats_sketch_bucket DO NOTHING";
+    private static final String LOCK_SKETCHES = "SELECT granularity, bucket_start, app, uri, registers " +
+            "FROM stats_sketch " +
+            "WHERE (granularity, bucket_start, app, uri) IN (:keys) " +
+            "ORDER BY granularity, bucket_start, app, uri " +
+            "FOR UPDATE";
+    private static final String UPDATE_SKETCH = "UPDATE stats_sketch SET registers = ? " +
+            "WHERE granularity = ? AND bucket_start = ? AND app = ? AND uri = ?";
+    private static final String SELECT_SKETCHES = "SELECT app, uri, registers " +
+            "FROM stats_sketch " +
+            "WHERE granularity = :granularity AND bucket_start >= :from AND bucket_start < :to";
+    private static final String SELECT_DISTINCT_IPS = "SELECT DISTINCT app_id, uri_id, host(ip) AS ip " +
+            "FROM stats " +
+            "WHERE timestamp >= :from AND timestamp < :to";
+    private static final String URI_IDS_FILTER = " AND uri_id = ANY (:uriIds)";
+    private static final String URIS_FILTER = " AND uri = ANY (:uris)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final HitDictionary hitDictionary;
+
+    /**
+     * Merges the sketches into their stored buckets with one write per bucket. The deltas are updated in place
+     * with the stored registers, which is harmless because merging is idempotent.
+     */
+    public void mergeAll(Map<BucketKey, HyperLogLog> deltas) {
+        List<BucketKey> keys = new ArrayList<>(deltas.keySet());
+        keys.sort(BucketKey.LOCK_ORDER);
+
+        // Merging is idempotent, so a freshly inserted delta can safely be merged with itself below.
+        jdbcTemplate.batchUpdate(INSERT_SKETCH, keys, BATCH_SIZE, (ps, key) -> {
+            setKey(ps, 1, key);
+            ps.setBytes(5, deltas.get(key).toBytes());
+        });
+
+        for (int from = 0; from < keys.size(); from += LOCK_CHUNK_SIZE) {
+            List<Object[]> chunk = keys.subList(from, Math.min(from + LOCK_CHUNK_SIZE, keys.size())).stream()
+                    .map(key -> new Object[]{key.granularity().name(), Timestamp.valueOf(key.bucketStart()), key.app(), key.uri()})
+                    .toList();
+            namedParameterJdbcTemplate.query(LOCK_SKETCHES, new MapSqlParameterSource("keys", chunk), rs -> {
+                BucketKey key = new BucketKey(Granularity.valueOf(rs.getString("granularity")),
+                        rs.getTimestamp("bucket_start").toLocalDateTime(),
+                        rs.getString("app"),
+                        rs.getString("uri"));
+                deltas.get(key).merge(HyperLogLog.fromBytes(rs.getBytes("registers")));
+            });
+        }
+
+        jdbcTemplate.batchUpdate(UPDATE_SKETCH, keys, BATCH_SIZE, (ps, key) -> {
+            ps.setBytes(1, deltas.get(key).toBytes());
+            setKey(ps, 2, key);
+        });
+    }
+
+    public void mergeSketchesInto(Granularity granularity,
+                                  LocalDateTime from,
+                                  LocalDateTime to,
+                                  List<String> uris,
+                                  Map<String, Map<String, HyperLogLog>> sketches) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("granularity", granularity.name())
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        String sql = SELECT_SKETCHES;
+        if (uris != null) {
+            sql += URIS_FILTER;
+            parameters.addValue("uris", uris.toArray(String[]::new));
+        }
+
+        namedParameterJdbcTemplate.query(sql, parameters, rs -> {
+            sketches.computeIfAbsent(rs.getString("app"), app -> new HashMap<>())
+                    .computeIfAbsent(rs.getString("uri"), uri -> new HyperLogLog())
+                    .merge(HyperLogLog.fromBytes(rs.getBytes("registers")));
+        });
+    }
+
+    public void mergeRawHitsInto(LocalDateTime from,
+                                 LocalDateTime to,
+                                 List<String> uris,
+                                 Map<String, Map<String, HyperLogLog>> sketches) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        String sql = SELECT_DISTINCT_IPS;
+        if (uris != null) {
+            List<Integer> uriIds = hitDictionary.findIds(DictionaryKind.URI, uris);
+            if (uriIds.isEmpty()) {
+                return;
+            }
+            sql += URI_IDS_FILTER;
+            parameters.addValue("uriIds", uriIds.toArray(Integer[]::new));
+        }
+
+        namedParameterJdbcTemplate.query(sql, parameters, rs -> {
+            sketches.computeIfAbsent(hitDictionary.decode(DictionaryKind.APP, rs.getInt("app_id")), app -> new HashMap<>())
+                    .computeIfAbsent(hitDictionary.decode(DictionaryKind.URI, rs.getInt("uri_id")), uri -> new HyperLogLog())
+                    .add(rs.getString("ip"));
+        });
+    }
+
+    private static void setKey(PreparedStatement ps, int firstIndex, BucketKey key) throws SQLException {
+        ps.setString(firstIndex, key.granularity().name());
+        ps.setTimestamp(firstIndex + 1, Timestamp.valueOf(key.bucketStart()));
+        ps.setString(firstIndex + 2, key.app());
+        ps.setString(firstIndex + 3, key.uri());
+    }
+}
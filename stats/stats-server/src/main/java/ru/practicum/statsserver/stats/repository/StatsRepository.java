@@ -1,15 +1,59 @@
 package ru.practicum.statsserver.stats.repository;
 
-import org.springframework.data.jpa.repository.JpaRepository;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.dto.ViewStatsSeriesDto;
 import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.Granularity;
+import ru.practicum.statsserver.stats.sketch.HyperLogLog;
 
 import java.time.LocalDateTime;
-import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
-public interface StatsRepository extends JpaRepository<EndpointHit, Integer> {
-    Collection<EndpointHit> findByTimestampBetween(LocalDateTime start, LocalDateTime end);
+/**
+ * Storage engine for raw hits, selected with {@code stats.storage.engine}.
+ */
+public interface StatsRepository {
+    void saveAll(List<EndpointHit> endpointHits);
 
-    Collection<EndpointHit> findByTimestampBetweenAndUriIn(LocalDateTime start, LocalDateTime end, List<String> uris);
-}
+    List<ViewStatsDto> getUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris, Integer limit);
+
+    List<ViewStatsDto> getStatsInRange(LocalDateTime from, LocalDateTime to, List<String> uris);
+
+    /**
+     * Adds the ip of every hit in [from, to) to the sketch of its app and uri, creating missing sketches.
+     */
+    void mergeRawHitsInto(LocalDateTime from, LocalDateTime to, List<String> uris, Map<String, Map<String, HyperLogLog>> sketches);
 
+    /**
+     * Estimates hit counts in [from, to) from a sample of about {@code rate} of the hits. Counts are scaled up
+     * and carry the error of the estimate; rows are not ordered. When the range holds fewer than
+     * {@code rowThreshold} hits, or too few to sample, the counts are exact and carry no error.
+     *
+     * <p>Engines that keep rollups never need to sample, so by default every count is exact.
+     */
+    default List<ViewStatsDto> sampleStatsInRange(LocalDateTime from,
+                                                  LocalDateTime to,
+                                                  List<String> uris,
+                                                  double rate,
+                                                  long rowThreshold) {
+        return getStatsInRange(from, to, uris);
+    }
+
+    /**
+     * Counts hits in [from, to) per app, uri and bucket of the given granularity, emitting rows in bucket order.
+     */
+    void streamSeries(LocalDateTime from,
+                      LocalDateTime to,
+                      List<String> uris,
+                      Granularity granularity,
+                      boolean unique,
+                      Consumer<ViewStatsSeriesDto> consumer);
+
+    /**
+     * Emits every raw hit in [from, to) without holding them in memory. Rows are not ordered.
+     */
+    void streamHits(LocalDateTime from, LocalDateTime to, Consumer<EndpointHitDto> consumer);
+}
@@ -0,0 +1,216 @@
+package ru.practicum.statsserver.stats.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.dto.ViewStatsSeriesDto;
+import ru.practicum.statsserver.stats.model.DictionaryKind;
+import ru.practicum.statsserver.stats.model.Granularity;
+import ru.practicum.statsserver.stats.model.RollupSegment;
+import ru.practicum.statsserver.stats.sketch.HyperLogLog;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Answers /stats with a single statement whose rows are read through a server-side cursor, so the
+ * result never has to be held in memory. Rollup and raw segments are merged by the database, and an
+ * optional limit lets it keep only a top-N heap instead of sorting the whole result.
+ * Must be called inside a transaction, otherwise the driver ignores the fetch size and buffers every row.
+ */
+@Repository
+public class StatsStreamRepository {
+    private static final int FETCH_SIZE = 1000;
+    private static final String RAW_SELECT = "SELECT a.name AS app, u.name AS uri, %s AS hits " +
+            "FROM stats s " +
+            "JOIN stats_app a ON a.id = s.app_id " +
+            "JOIN stats_uri u ON u.id = s.uri_id " +
+            "WHERE (%s)";
+    private static final String ROLLUP_SELECT = "SELECT app, uri, hits " +
+            "FROM stats_rollup " +
+            "WHERE (%s)";
+
+    private static final String RAW_SERIES = "SELECT app_id, uri_id, date_trunc(:unit, timestamp) AS bucket, %s AS hits " +
+            "FROM stats " +
+            "WHERE timestamp >= :from AND timestamp < :to";
+    private static final String ROLLUP_SERIES = "SELECT app, uri, bucket_start AS bucket, hits " +
+            "FROM stats_rollup " +
+            "WHERE granularity = :granularity AND bucket_start >= :from AND bucket_start < :to";
+    private static final String SKETCH_SERIES = "SELECT app, uri, bucket_start AS bucket, registers " +
+            "FROM stats_sketch " +
+            "WHERE granularity = :granularity AND bucket_start >= :from AND bucket_start < :to";
+    private static final String RAW_HITS = "SELECT app_id, uri_id, host(ip) AS ip, timestamp " +
+            "FROM stats " +
+            "WHERE timestamp >= :from AND timestamp < :to";
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final HitDictionary hitDictionary;
+
+    public StatsStreamRepository(DataSource dataSource, HitDictionary hitDictionary) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.hitDictionary = hitDictionary;
+    }
+
+    public void streamStats(List<RollupSegment> segments, List<String> uris, Integer limit, Consumer<ViewStatsDto> consumer) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        List<String> rollupRanges = new ArrayList<>();
+        List<String> rawRanges = new ArrayList<>();
+
+        for (int i = 0; i < segments.size(); i++) {
+            RollupSegment segment = segments.get(i);
+            parameters.addValue("from" + i, Timestamp.valueOf(segment.getFrom()));
+            parameters.addValue("to" + i, Timestamp.valueOf(segment.getTo()));
+            if (segment.isRaw()) {
+                rawRanges.add(String.format("s.timestamp >= :from%d AND s.timestamp < :to%d", i, i));
+            } else {
+                parameters.addValue("granularity" + i, segment.getGranularity().name());
+                rollupRanges.add(String.format("granularity = :granularity%d AND bucket_start >= :from%d AND bucket_start < :to%d", i, i, i));
+            }
+        }
+
+        String uriFilter = "";
+        String uriIdFilter = "";
+        if (uris != null) {
+            List<Integer> uriIds = hitDictionary.findIds(DictionaryKind.URI, uris);
+            if (uriIds.isEmpty()) {
+                return;
+            }
+            parameters.addValue("uris", uris.toArray(String[]::new));
+            parameters.addValue("uriIds", uriIds.toArray(Integer[]::new));
+            uriFilter = " AND uri = ANY (:uris)";
+            uriIdFilter = " AND s.uri_id = ANY (:uriIds)";
+        }
+
+        List<String> parts = new ArrayList<>();
+        if (!rollupRanges.isEmpty()) {
+            parts.add(String.format(ROLLUP_SELECT, String.join(") OR (", rollupRanges)) + uriFilter);
+        }
+        if (!rawRanges.isEmpty()) {
+            parts.add(String.format(RAW_SELECT, "COUNT(*)", String.join(") OR (", rawRanges)) + uriIdFilter +
+                    " GROUP BY a.name, u.name");
+        }
+        if (parts.isEmpty()) {
+            return;
+        }
+
+        String sql = "SELECT app, uri, SUM(hits) AS hits FROM (" + String.join(" UNION ALL ", parts) + ") parts " +
+                "GROUP BY app, uri ORDER BY hits DESC";
+        query(sql, parameters, limit, consumer);
+    }
+
+    public void streamUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris, Integer limit,
+                                  Consumer<ViewStatsDto> consumer) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(start))
+                .addValue("to", Timestamp.valueOf(end));
+        String sql = String.format(RAW_SELECT, "COUNT(DISTINCT s.ip)", "s.timestamp BETWEEN :from AND :to");
+        if (uris != null) {
+            List<Integer> uriIds = hitDictionary.findIds(DictionaryKind.URI, uris);
+            if (uriIds.isEmpty()) {
+                return;
+            }
+            parameters.addValue("uriIds", uriIds.toArray(Integer[]::new));
+            sql += " AND s.uri_id = ANY (:uriIds)";
+        }
+
+        query(sql + " GROUP BY a.name, u.name ORDER BY hits DESC", parameters, limit, consumer);
+    }
+
+    public void streamRawSeries(LocalDateTime from,
+                                LocalDateTime to,
+                                List<String> uris,
+                                Granularity granularity,
+                                boolean unique,
+                                Consumer<ViewStatsSeriesDto> consumer) {
+        MapSqlParameterSource parameters = rangeParameters(from, to)
+                .addValue("unit", granularity.name().toLowerCase());
+        String sql = String.format(RAW_SERIES, unique ? "COUNT(DISTINCT ip)" : "COUNT(*)");
+        if (uris != null) {
+            List<Integer> uriIds = hitDictionary.findIds(DictionaryKind.URI, uris);
+            if (uriIds.isEmpty()) {
+                return;
+            }
+            parameters.addValue("uriIds", uriIds.toArray(Integer[]::new));
+            sql += " AND uri_id = ANY (:uriIds)";
+        }
+
+        namedParameterJdbcTemplate.query(sql + " GROUP BY app_id, uri_id, bucket ORDER BY bucket", parameters, rs -> {
+            consumer.accept(new ViewStatsSeriesDto(hitDictionary.decode(DictionaryKind.APP, rs.getInt("app_id")),
+                    hitDictionary.decode(DictionaryKind.URI, rs.getInt("uri_id")),
+                    rs.getTimestamp("bucket").toLocalDateTime(),
+                    rs.getLong("hits")));
+        });
+    }
+
+    public void streamRollupSeries(Granularity granularity,
+                                   LocalDateTime from,
+                                   LocalDateTime to,
+                                   List<String> uris,
+                                   Consumer<ViewStatsSeriesDto> consumer) {
+        MapSqlParameterSource parameters = rangeParameters(from, to)
+                .addValue("granularity", granularity.name());
+        namedParameterJdbcTemplate.query(withUris(ROLLUP_SERIES, uris, parameters) + " ORDER BY bucket_start", parameters, rs -> {
+            consumer.accept(new ViewStatsSeriesDto(rs.getString("app"),
+                    rs.getString("uri"),
+                    rs.getTimestamp("bucket").toLocalDateTime(),
+                    rs.getLong("hits")));
+        });
+    }
+
+    public void streamSketchSeries(Granularity granularity,
+                                   LocalDateTime from,
+                                   LocalDateTime to,
+                                   List<String> uris,
+                                   Consumer<ViewStatsSeriesDto> consumer) {
+        MapSqlParameterSource parameters = rangeParameters(from, to)
+                .addValue("granularity", granularity.name());
+        namedParameterJdbcTemplate.query(withUris(SKETCH_SERIES, uris, parameters) + " ORDER BY bucket_start", parameters, rs -> {
+            consumer.accept(new ViewStatsSeriesDto(rs.getString("app"),
+                    rs.getString("uri"),
+                    rs.getTimestamp("bucket").toLocalDateTime(),
+                    HyperLogLog.fromBytes(rs.getBytes("registers")).estimate()));
+        });
+    }
+
+    public void streamHits(LocalDateTime from, LocalDateTime to, Consumer<EndpointHitDto> consumer) {
+        namedParameterJdbcTemplate.query(RAW_HITS, rangeParameters(from, to), rs -> {
+            consumer.accept(new EndpointHitDto(hitDictionary.decode(DictionaryKind.APP, rs.getInt("app_id")),
+                    hitDictionary.decode(DictionaryKind.URI, rs.getInt("uri_id")),
+                    rs.getString("ip"),
+                    rs.getTimestamp("timestamp").toLocalDateTime()));
+        });
+    }
+
+    private static MapSqlParameterSource rangeParameters(LocalDateTime from, LocalDateTime to) {
+        return new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+    }
+
+    private static String withUris(String sql, List<String> uris, MapSqlParameterSource parameters) {
+        if (uris == null) {
+            return sql;
+        }
+        parameters.addValue("uris", uris.toArray(String[]::new));
+        return sql + " AND uri = ANY (:uris)";
+    }
+
+    private void query(String sql, MapSqlParameterSource parameters, Integer limit, Consumer<ViewStatsDto> consumer) {
+        if (limit != null) {
+            sql += " LIMIT :limit";
+            parameters.addValue("limit", limit);
+        }
+        namedParameterJdbcTemplate.query(sql, parameters, rs -> {
+            consumer.accept(new ViewStatsDto(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")));
+        });
+    }
+}
@@ -0,0 +1,30 @@
+package ru.practicum.statsserver.stats.sampling;
+
+import ru.practicum.statsserver.stats.sketch.HyperLogLog;
+
+/**
+ * Half-widths of 95% confidence intervals for the estimates /stats can return.
+ */
+public final class ConfidenceInterval {
+    private static final double Z = 1.96;
+
+    private ConfidenceInterval() {
+    }
+
+    public static long ofSketch(long estimate) {
+        return Math.round(Z * HyperLogLog.RELATIVE_STANDARD_ERROR * estimate);
+    }
+
+    /**
+     * {@code sampledBlocks} of {@code totalBlocks} blocks read whole, with per-block hit counts summing to {@code sum}
+     * and their squares to {@code sumOfSquares}.
+     */
+    public static long ofClusterSample(double sum, double sumOfSquares, int sampledBlocks, int totalBlocks) {
+        if (sampledBlocks >= totalBlocks) {
+            return 0;
+        }
+        double variance = (sumOfSquares - sum * sum / sampledBlocks) / (sampledBlocks - 1);
+        double totalVariance = (double) totalBlocks * totalBlocks * (1 - (double) sampledBlocks / totalBlocks) * variance / sampledBlocks;
+        return Math.round(Z * Math.sqrt(Math.max(totalVariance, 0)));
+    }
+}
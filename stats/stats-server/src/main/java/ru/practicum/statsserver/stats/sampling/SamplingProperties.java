@@ -0,0 +1,11 @@
+package ru.practicum.statsserver.stats.sampling;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "stats.sampling")
+public class SamplingProperties {
+    private double rate = 0.01;
+    private long rowThreshold = 10_000_000;
+}
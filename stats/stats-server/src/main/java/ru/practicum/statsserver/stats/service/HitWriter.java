@@ -0,0 +1,73 @@
+package ru.practicum.statsserver.stats.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statsserver.stats.cache.StatsResultCache;
+import ru.practicum.statsserver.stats.ingest.SketchBuffer;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.repository.HitBatchRepository;
+import ru.practicum.statsserver.stats.repository.HitDictionary;
+import ru.practicum.statsserver.stats.repository.StatsRepository;
+import ru.practicum.statsserver.stats.storage.StorageEngine;
+import ru.practicum.statsserver.stats.storage.StorageProperties;
+
+import java.util.List;
+
+/**
+ * Writes a batch of hits and their rollups in one transaction. It must not be called inside another transaction:
+ * new app and uri names are interned and committed before the write transaction opens, so a batch never holds
+ * more than one pooled connection at a time.
+ */
+@Component
+public class HitWriter {
+    private final StatsRepository statsRepository;
+    private final HitBatchRepository hitBatchRepository;
+    private final HitDictionary hitDictionary;
+    private final SketchBuffer sketchBuffer;
+    private final StorageProperties storageProperties;
+    private final StatsResultCache statsResultCache;
+    private final TransactionTemplate transactionTemplate;
+
+    public HitWriter(StatsRepository statsRepository,
+                     HitBatchRepository hitBatchRepository,
+                     HitDictionary hitDictionary,
+                     SketchBuffer sketchBuffer,
+                     StorageProperties storageProperties,
+                     StatsResultCache statsResultCache,
+                     PlatformTransactionManager transactionManager) {
+        this.statsRepository = statsRepository;
+        this.hitBatchRepository = hitBatchRepository;
+        this.hitDictionary = hitDictionary;
+        this.sketchBuffer = sketchBuffer;
+        this.storageProperties = storageProperties;
+        this.statsResultCache = statsResultCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void write(List<EndpointHit> endpointHits) {
+        boolean aggregated = storageProperties.getEngine() == StorageEngine.POSTGRES;
+        hitDictionary.intern(endpointHits);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            statsRepository.saveAll(endpointHits);
+            if (aggregated) {
+                hitBatchRepository.incrementRollups(endpointHits);
+            }
+
+            // Late hits must not be hidden by results cached before they were committed, and only committed
+            // hits may reach the sketches.
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    if (aggregated) {
+                        sketchBuffer.add(endpointHits);
+                    }
+                    statsResultCache.onHits(endpointHits);
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,14 @@
+package ru.practicum.statsserver.stats.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "stats.patterns")
+public class PatternProperties {
+    /**
+     * How many uris the patterns of one request may expand into. The matches are bound as a single array,
+     * but every one of them still has to be looked up and aggregated.
+     */
+    private int maxUris = 10_000;
+}
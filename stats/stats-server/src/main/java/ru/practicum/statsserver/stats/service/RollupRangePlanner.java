@@ -0,0 +1,47 @@
+package ru.practicum.statsserver.stats.service;
+
+import org.springframework.stereotype.Component;
+import ru.practicum.statsserver.stats.model.Granularity;
+import ru.practicum.statsserver.stats.model.RollupSegment;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a half-open range [from, to) into the coarsest rollup buckets that fit entirely inside it:
+ * whole days in the middle, then hours and minutes for the ragged edges, and raw segments for
+ * whatever is left below a minute. A range therefore never needs more than seven lookups.
+ */
+@Component
+public class RollupRangePlanner {
+    private static final Granularity[] LEVELS = {Granularity.DAY, Granularity.HOUR, Granularity.MINUTE};
+
+    public List<RollupSegment> plan(LocalDateTime from, LocalDateTime to) {
+        List<RollupSegment> segments = new ArrayList<>();
+        split(from, to, 0, segments);
+        return segments;
+    }
+
+    private void split(LocalDateTime from, LocalDateTime to, int level, List<RollupSegment> segments) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (level == LEVELS.length) {
+            segments.add(new RollupSegment(null, from, to));
+            return;
+        }
+
+        Granularity granularity = LEVELS[level];
+        LocalDateTime alignedFrom = granularity.ceil(from);
+        LocalDateTime alignedTo = granularity.floor(to);
+
+        if (alignedFrom.isBefore(alignedTo)) {
+            split(from, alignedFrom, level + 1, segments);
+            segments.add(new RollupSegment(granularity, alignedFrom, alignedTo));
+            split(alignedTo, to, level + 1, segments);
+        } else {
+            split(from, to, level + 1, segments);
+        }
+    }
+}
@@ -1,13 +1,57 @@
 package ru.practicum.statsserver.stats.service;
 
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.ImportProgressDto;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.dto.ViewStatsSeriesDto;
+import ru.practicum.statsserver.stats.model.Granularity;
+import ru.practicum.statsserver.stats.model.UniqueMode;
 
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatsService {
     void create(EndpointHitDto endpointHitDto);
 
-    List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique);
+    void createAll(List<EndpointHitDto> endpointHitDtos);
+
+    void importHits(Iterator<EndpointHitDto> endpointHitDtos, Consumer<ImportProgressDto> progress);
+
+    void exportHits(LocalDateTime start, LocalDateTime end, Consumer<EndpointHitDto> consumer);
+
+    List<ViewStatsDto> getStats(LocalDateTime start,
+                                LocalDateTime end,
+                                List<String> uris,
+                                UniqueMode unique,
+                                Integer limit,
+                                boolean expand,
+                                Boolean approximate);
+
+    void streamStats(LocalDateTime start,
+                     LocalDateTime end,
+                     List<String> uris,
+                     UniqueMode unique,
+                     Integer limit,
+                     boolean expand,
+                     Boolean approximate,
+                     Consumer<ViewStatsDto> consumer);
+
+    List<ViewStatsSeriesDto> getSeries(LocalDateTime start,
+                                       LocalDateTime end,
+                                       List<String> uris,
+                                       Granularity interval,
+                                       UniqueMode unique);
+
+    void streamSeries(LocalDateTime start,
+                      LocalDateTime end,
+                      List<String> uris,
+                      Granularity interval,
+                      UniqueMode unique,
+                      Consumer<ViewStatsSeriesDto> consumer);
+
+    List<ViewStatsDto> getLiveStats(List<String> uris, String window);
+
+    List<ViewStatsDto> getTopStats(String app, String window, int k);
 }
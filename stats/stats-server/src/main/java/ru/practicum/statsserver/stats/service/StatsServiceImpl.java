@@ -2,96 +2,556 @@ package ru.practicum.statsserver.stats.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.ImportProgressDto;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.dto.ViewStatsSeriesDto;
+import ru.practicum.statsserver.stats.cache.StatsQuery;
+import ru.practicum.statsserver.stats.cache.StatsResultCache;
+import ru.practicum.statsserver.stats.compaction.HitCompactor;
 import ru.practicum.statsserver.stats.exception.exception.BadRequestException;
+import ru.practicum.statsserver.stats.exception.exception.ServiceUnavailableException;
+import ru.practicum.statsserver.stats.ingest.IngestProperties;
+import ru.practicum.statsserver.stats.ingest.WriteBehindBuffer;
+import ru.practicum.statsserver.stats.live.LiveCounterStore;
+import ru.practicum.statsserver.stats.live.TopUriTracker;
 import ru.practicum.statsserver.stats.mapper.EndpointHitMapper;
 import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.Granularity;
+import ru.practicum.statsserver.stats.model.RollupSegment;
+import ru.practicum.statsserver.stats.model.UniqueMode;
+import ru.practicum.statsserver.stats.partition.PartitionMaintenance;
+import ru.practicum.statsserver.stats.repository.RollupRepository;
+import ru.practicum.statsserver.stats.repository.SketchRepository;
 import ru.practicum.statsserver.stats.repository.StatsRepository;
+import ru.practicum.statsserver.stats.repository.StatsStreamRepository;
+import ru.practicum.statsserver.stats.sampling.ConfidenceInterval;
+import ru.practicum.statsserver.stats.sampling.SamplingProperties;
+import ru.practicum.statsserver.stats.sketch.HyperLogLog;
+import ru.practicum.statsserver.stats.storage.StorageEngine;
+import ru.practicum.statsserver.stats.storage.StorageProperties;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class StatsServiceImpl implements StatsService {
     private final StatsRepository statsRepository;
+    private final RollupRepository rollupRepository;
+    private final HitWriter hitWriter;
+    private final WriteBehindBuffer writeBehindBuffer;
+    private final SketchRepository sketchRepository;
+    private final StatsStreamRepository statsStreamRepository;
+    private final RollupRangePlanner rollupRangePlanner;
     private final EndpointHitMapper endpointHitMapper;
+    private final LiveCounterStore liveCounterStore;
+    private final TopUriTracker topUriTracker;
+    private final StorageProperties storageProperties;
+    private final UriPatternResolver uriPatternResolver;
+    private final StatsResultCache statsResultCache;
+    private final HitCompactor hitCompactor;
+    private final IngestProperties ingestProperties;
+    private final PartitionMaintenance partitionMaintenance;
+    private final SamplingProperties samplingProperties;
 
+    // Not transactional: a queued hit must not take a pooled connection, and a direct write opens its own
+    // transaction in HitWriter.
     @Override
-    @Transactional
     public void create(EndpointHitDto endpointHitDto) {
         log.info("StatsService: Beginning of method execution create().");
 
-        log.info("StatsService.create(): Mapping from dto.");
-        EndpointHit endpointHit = endpointHitMapper.toEndpointHit(endpointHitDto);
+        if (writeBehindBuffer.isEnabled()) {
+            log.info("StatsService.create(): Queueing endpoint hit for write-behind.");
+            EndpointHit endpointHit = endpointHitMapper.toEndpointHit(endpointHitDto);
+            writeBehindBuffer.accept(endpointHit);
+            recordLive(List.of(endpointHit));
+            return;
+        }
+        createAll(List.of(endpointHitDto));
+    }
+
+    // Not transactional: HitWriter interns new names before it opens the write transaction.
+    @Override
+    public void createAll(List<EndpointHitDto> endpointHitDtos) {
+        log.info("StatsService: Beginning of method execution createAll().");
+
+        if (endpointHitDtos.isEmpty()) {
+            log.info("StatsService.createAll(): Nothing to save.");
+            return;
+        }
+
+        log.info("StatsService.createAll(): Mapping {} hits from dto.", endpointHitDtos.size());
+        List<EndpointHit> endpointHits = endpointHitDtos.stream()
+                .map(endpointHitMapper::toEndpointHit)
+                .toList();
+
+        log.info("StatsService.createAll(): Add endpoint hits and rollup buckets to database.");
+        hitWriter.write(endpointHits);
+        recordLive(endpointHits);
+        log.info("StatsService.createAll(): {} EndpointHits saved successfully.", endpointHits.size());
+    }
+
+    // Every chunk is written in its own transaction, so a failed import keeps the chunks reported as imported.
+    @Override
+    public void importHits(Iterator<EndpointHitDto> endpointHitDtos, Consumer<ImportProgressDto> progress) {
+        log.info("StatsService: Beginning of method execution importHits().");
+
+        int batchSize = ingestProperties.getImportBatchSize();
+        List<EndpointHit> batch = new ArrayList<>(batchSize);
+        long imported = 0;
+        long rejected = 0;
+        while (endpointHitDtos.hasNext()) {
+            try {
+                batch.add(endpointHitMapper.toEndpointHit(endpointHitDtos.next()));
+            } catch (BadRequestException e) {
+                rejected++;
+                continue;
+            }
+            if (batch.size() == batchSize) {
+                imported += writeImportBatch(batch);
+                log.info("StatsService.importHits(): {} hits imported, {} rejected so far.", imported, rejected);
+                progress.accept(new ImportProgressDto(imported, rejected, false));
+            }
+        }
+        imported += writeImportBatch(batch);
+
+        log.info("StatsService.importHits(): Import finished with {} hits imported and {} rejected.", imported, rejected);
+        progress.accept(new ImportProgressDto(imported, rejected, true));
+    }
 
-        log.info("StatsService.create(): Add endpoint hit to database.");
-        statsRepository.save(endpointHit);
-        log.info("StatsService.create(): EndpointHit saved successfully.");
+    @Override
+    @Transactional(readOnly = true)
+    public void exportHits(LocalDateTime start, LocalDateTime end, Consumer<EndpointHitDto> consumer) {
+        log.info("StatsService: Beginning of method execution exportHits().");
+        checkParameters(start, end, null);
+
+        if (isCompacted(start)) {
+            log.warn("StatsService.exportHits(): Hits before {} were compacted and are not exported.", hitCompactor.getCompactedBefore());
+        }
+        statsRepository.streamHits(start, end.plusSeconds(1), consumer);
+        log.info("StatsService.exportHits(): Hits from {} to {} successfully exported.", start, end);
     }
 
     @Override
     public List<ViewStatsDto> getStats(LocalDateTime start,
                                        LocalDateTime end,
                                        List<String> uris,
-                                       boolean unique) {
+                                       UniqueMode unique,
+                                       Integer limit,
+                                       boolean expand,
+                                       Boolean approximate) {
         log.info("StatsService: Beginning of method execution getStats().");
+        checkParameters(start, end, limit);
+
+        return statsResultCache.get(StatsQuery.of(start, end, uris, unique, limit, expand, approximate),
+                () -> loadStats(start, end, uris, unique, limit, expand, approximate));
+    }
+
+    private List<ViewStatsDto> loadStats(LocalDateTime start,
+                                         LocalDateTime end,
+                                         List<String> uris,
+                                         UniqueMode unique,
+                                         Integer limit,
+                                         boolean expand,
+                                         Boolean approximate) {
+        if (!uriPatternResolver.hasPatterns(uris)) {
+            return collectStats(start, end, uris, unique, limit, approximate);
+        }
+
+        log.info("StatsService.getStats(): Resolving uri patterns {}.", uris);
+        UriPatternResolver.Resolution resolution = uriPatternResolver.resolve(uris);
+        if (resolution.uris().isEmpty()) {
+            log.info("StatsService.getStats(): No known uris match {}.", uris);
+            return List.of();
+        }
+        if (expand) {
+            return collectStats(start, end, resolution.uris(), unique, limit, approximate);
+        }
+        return limit(resolution.aggregate(collectStats(start, end, resolution.uris(), unique, null, approximate), uris), limit);
+    }
+
+    private List<ViewStatsDto> collectStats(LocalDateTime start,
+                                            LocalDateTime end,
+                                            List<String> uris,
+                                            UniqueMode unique,
+                                            Integer limit,
+                                            Boolean approximate) {
+        List<String> uriFilter = uris != null && !uris.isEmpty() ? uris : null;
+
+        if (!Boolean.FALSE.equals(approximate)) {
+            List<ViewStatsDto> estimated = estimateStats(start, end, uriFilter, unique, Boolean.TRUE.equals(approximate));
+            if (estimated != null) {
+                return limit(estimated, limit);
+            }
+        }
+
+        log.info("StatsService.getStats(): Checking for the existence of a unique parameter.");
+        if (unique == UniqueMode.EXACT && !isCompacted(start)) {
+            log.info("StatsService.getStats(): Collecting unique statistics from raw hits, uris={}.", uris);
+            return statsRepository.getUniqueStats(start, end, uriFilter, limit);
+        }
 
-        List<EndpointHit> hits = new ArrayList<>();
+        List<RollupSegment> segments = planSegments(start, end);
 
+        // Raw hits before the compaction watermark are gone, so exact unique counts fall back to sketches there.
+        // Segment storage keeps no sketches, its approximate unique counts are sketched from raw hits per query.
+        if (unique != UniqueMode.NONE) {
+            log.info("StatsService.getStats(): Estimating unique statistics from {} sketch segments, uris={}.", segments.size(), uris);
+            return limit(getApproximateUniqueStats(segments, uriFilter), limit);
+        }
+
+        log.info("StatsService.getStats(): Collecting statistics from {} rollup segments, uris={}.", segments.size(), uris);
+        Map<String, Map<String, Long>> hitsByAppAndUri = new HashMap<>();
+        for (RollupSegment segment : segments) {
+            for (ViewStatsDto partial : getSegmentStats(segment, uriFilter)) {
+                hitsByAppAndUri.computeIfAbsent(partial.getApp(), app -> new HashMap<>())
+                        .merge(partial.getUri(), partial.getHits(), Long::sum);
+            }
+        }
+
+        List<ViewStatsDto> result = limit(toSortedViewStats(hitsByAppAndUri), limit);
+        log.info("StatsService.getStats(): Statistics successfully collected.");
+        return result;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamStats(LocalDateTime start,
+                            LocalDateTime end,
+                            List<String> uris,
+                            UniqueMode unique,
+                            Integer limit,
+                            boolean expand,
+                            Boolean approximate,
+                            Consumer<ViewStatsDto> consumer) {
+        log.info("StatsService: Beginning of method execution streamStats().");
+        checkParameters(start, end, limit);
+
+        List<String> uriFilter = uris != null && !uris.isEmpty() ? uris : null;
+        if (!hasAggregates() || uriPatternResolver.hasPatterns(uris) || (!Boolean.FALSE.equals(approximate)
+                && isEstimated(start, end, uriFilter, unique, Boolean.TRUE.equals(approximate)))) {
+            log.info("StatsService.streamStats(): Result cannot be read through a single cursor, streaming the collected result.");
+            getStats(start, end, uris, unique, limit, expand, approximate).forEach(consumer);
+            return;
+        }
+
+        switch (unique == UniqueMode.EXACT && isCompacted(start) ? UniqueMode.APPROXIMATE : unique) {
+            case EXACT -> {
+                log.info("StatsService.streamStats(): Streaming unique statistics from raw hits, uris={}.", uris);
+                statsStreamRepository.streamUniqueStats(start, end, uriFilter, limit, consumer);
+            }
+            case APPROXIMATE -> {
+                log.info("StatsService.streamStats(): Sketches are merged in memory, streaming the estimated result.");
+                limit(getApproximateUniqueStats(planSegments(start, end), uriFilter), limit).forEach(consumer);
+            }
+            default -> {
+                List<RollupSegment> segments = planSegments(start, end);
+                log.info("StatsService.streamStats(): Streaming statistics from {} rollup segments, uris={}.", segments.size(), uris);
+                statsStreamRepository.streamStats(segments, uriFilter, limit, consumer);
+            }
+        }
+        log.info("StatsService.streamStats(): Statistics successfully streamed.");
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ViewStatsSeriesDto> getSeries(LocalDateTime start,
+                                              LocalDateTime end,
+                                              List<String> uris,
+                                              Granularity interval,
+                                              UniqueMode unique) {
+        List<ViewStatsSeriesDto> result = new ArrayList<>();
+        streamSeries(start, end, uris, interval, unique, result::add);
+        return result;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamSeries(LocalDateTime start,
+                             LocalDateTime end,
+                             List<String> uris,
+                             Granularity interval,
+                             UniqueMode unique,
+                             Consumer<ViewStatsSeriesDto> consumer) {
+        log.info("StatsService: Beginning of method execution streamSeries().");
+        checkParameters(start, end, null);
+
+        List<String> uriFilter = uris != null && !uris.isEmpty() ? uris : null;
+        LocalDateTime from = start;
+        LocalDateTime to = end.plusSeconds(1);
+
+        if (isCompacted(from)) {
+            // Only daily aggregates are left before the watermark, so that part of the series has daily buckets.
+            LocalDateTime compactedBefore = hitCompactor.getCompactedBefore();
+            LocalDateTime compactedFrom = Granularity.DAY.floor(from);
+            LocalDateTime compactedTo = Collections.min(List.of(compactedBefore, Granularity.DAY.ceil(to)));
+            log.info("StatsService.streamSeries(): Reading daily buckets of compacted hits in [{}, {}).", compactedFrom, compactedTo);
+            if (unique == UniqueMode.NONE) {
+                statsStreamRepository.streamRollupSeries(Granularity.DAY, compactedFrom, compactedTo, uriFilter, consumer);
+            } else {
+                statsStreamRepository.streamSketchSeries(Granularity.DAY, compactedFrom, compactedTo, uriFilter, consumer);
+            }
+            if (!to.isAfter(compactedBefore)) {
+                return;
+            }
+            from = compactedBefore;
+        }
+
+        LocalDateTime innerFrom = interval.ceil(from);
+        LocalDateTime innerTo = interval.floor(to);
+
+        if (unique == UniqueMode.EXACT || !hasAggregates() || !innerFrom.isBefore(innerTo)) {
+            log.info("StatsService.streamSeries(): Bucketing raw hits by {}, uris={}.", interval, uris);
+            statsRepository.streamSeries(from, to, uriFilter, interval, unique != UniqueMode.NONE, consumer);
+            return;
+        }
+
+        // Whole buckets come from the rollups or sketches of the same granularity and only the partial buckets
+        // at both edges are counted from raw hits, in this order so that the series stays sorted by bucket.
+        log.info("StatsService.streamSeries(): Reading {} buckets from aggregates in [{}, {}), uris={}.", interval, innerFrom, innerTo, uris);
+        boolean distinct = unique == UniqueMode.APPROXIMATE;
+        if (from.isBefore(innerFrom)) {
+            statsRepository.streamSeries(from, innerFrom, uriFilter, interval, distinct, consumer);
+        }
+        if (distinct) {
+            statsStreamRepository.streamSketchSeries(interval, innerFrom, innerTo, uriFilter, consumer);
+        } else {
+            statsStreamRepository.streamRollupSeries(interval, innerFrom, innerTo, uriFilter, consumer);
+        }
+        if (innerTo.isBefore(to)) {
+            statsRepository.streamSeries(innerTo, to, uriFilter, interval, distinct, consumer);
+        }
+        log.info("StatsService.streamSeries(): Series successfully streamed.");
+    }
+
+    @Override
+    public List<ViewStatsDto> getLiveStats(List<String> uris, String window) {
+        log.info("StatsService: Beginning of method execution getLiveStats().");
+
+        if (!liveCounterStore.isEnabled()) {
+            throw new ServiceUnavailableException("Live counters are disabled.");
+        }
+
+        Duration duration = parseWindow(window);
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(liveCounterStore.getWindow()) > 0) {
+            throw new BadRequestException(String.format("Parameter window must be positive and at most %s.", liveCounterStore.getWindow()));
+        }
+
+        List<ViewStatsDto> result = liveCounterStore.getCounts(uris != null && !uris.isEmpty() ? uris : null, duration);
+        log.info("StatsService.getLiveStats(): Live statistics for the last {} successfully collected.", duration);
+        return result;
+    }
+
+    @Override
+    public List<ViewStatsDto> getTopStats(String app, String window, int k) {
+        log.info("StatsService: Beginning of method execution getTopStats().");
+
+        if (!topUriTracker.isEnabled()) {
+            throw new ServiceUnavailableException("Top uri tracking is disabled.");
+        }
+
+        Duration duration = parseWindow(window);
+        if (!topUriTracker.getWindows().contains(duration)) {
+            throw new BadRequestException(String.format("Parameter window must be one of %s, but was %s.", topUriTracker.getWindows(), window));
+        }
+        if (k <= 0 || k > topUriTracker.getCapacity()) {
+            throw new BadRequestException(String.format("Parameter k must be between 1 and %d.", topUriTracker.getCapacity()));
+        }
+
+        List<ViewStatsDto> result = topUriTracker.getTop(app, duration, k);
+        log.info("StatsService.getTopStats(): Top {} uris for the last {} successfully collected.", k, duration);
+        return result;
+    }
+
+    private int writeImportBatch(List<EndpointHit> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        if (hasAggregates()) {
+            ensurePartitions(batch);
+        }
+        hitWriter.write(batch);
+        int written = batch.size();
+        batch.clear();
+        return written;
+    }
+
+    // Backfilled hits are usually older than the premade partitions and would otherwise all land in the default one.
+    private void ensurePartitions(List<EndpointHit> batch) {
+        LocalDate from = batch.get(0).getTimestamp().toLocalDate();
+        LocalDate to = from;
+        for (EndpointHit hit : batch) {
+            LocalDate day = hit.getTimestamp().toLocalDate();
+            from = day.isBefore(from) ? day : from;
+            to = day.isAfter(to) ? day : to;
+        }
+        try {
+            partitionMaintenance.ensurePartitions(from, to);
+        } catch (DataAccessException e) {
+            log.warn("StatsService.importHits(): Could not create partitions for [{}, {}], hits go to the default partition.", from, to, e);
+        }
+    }
+
+    private void recordLive(List<EndpointHit> endpointHits) {
+        if (liveCounterStore.isEnabled()) {
+            endpointHits.forEach(liveCounterStore::record);
+        }
+        if (topUriTracker.isEnabled()) {
+            endpointHits.forEach(topUriTracker::record);
+        }
+    }
+
+    private Duration parseWindow(String window) {
+        try {
+            return DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(String.format("Parameter window must be a duration such as 5m, but was %s.", window));
+        }
+    }
+
+    private void checkParameters(LocalDateTime start, LocalDateTime end, Integer limit) {
         if (start.isAfter(end)) {
             throw new BadRequestException("The start date must be earlier than the end date.");
         }
+        if (limit != null && limit <= 0) {
+            throw new BadRequestException("The limit must be positive.");
+        }
+    }
 
-        log.info("StatsService.getStats(): Checking for the existence of a uris list.");
-        if (uris != null && !uris.isEmpty()) {
-            log.info("StatsService.getStats(): Getting hits with uris list.");
-            hits.addAll(statsRepository.findByTimestampBetweenAndUriIn(start, end, uris));
-        } else {
-            log.info("StatsService.getStats(): Getting hits without uris list.");
-            hits.addAll(statsRepository.findByTimestampBetween(start, end));
+    private List<RollupSegment> planSegments(LocalDateTime start, LocalDateTime end) {
+        // Timestamps are requested with second precision and the end is inclusive,
+        // so the range is answered as [start, end + 1s).
+        if (!hasAggregates()) {
+            return List.of(new RollupSegment(null, start, end.plusSeconds(1)));
+        }
+        if (!isCompacted(start)) {
+            return rollupRangePlanner.plan(start, end.plusSeconds(1));
         }
 
-        log.info("StatsService.getStats(): Checking for the existence of a unique parameter.");
-        if (unique) {
-            log.info("StatsService.getStats(): Getting hits with unique parameter.");
-            Map<String, EndpointHit> uniqueHitsByIp = new HashMap<>();
+        // Before the compaction watermark only daily aggregates exist, so that part is widened to whole days.
+        LocalDateTime compactedBefore = hitCompactor.getCompactedBefore();
+        LocalDateTime to = end.plusSeconds(1);
+        List<RollupSegment> segments = new ArrayList<>();
+        segments.add(new RollupSegment(Granularity.DAY, Granularity.DAY.floor(start),
+                Collections.min(List.of(compactedBefore, Granularity.DAY.ceil(to)))));
+        if (to.isAfter(compactedBefore)) {
+            segments.addAll(rollupRangePlanner.plan(compactedBefore, to));
+        }
+        return segments;
+    }
 
-            for (EndpointHit hit : hits) {
-                String ip = hit.getIp();
-                uniqueHitsByIp.putIfAbsent(ip, hit);
+    /**
+     * Answers from an estimate when asked to, or when the exact answer would read more than
+     * {@code stats.sampling.row-threshold} raw hits. Returns null when the exact answer should be collected instead.
+     */
+    private List<ViewStatsDto> estimateStats(LocalDateTime start,
+                                             LocalDateTime end,
+                                             List<String> uris,
+                                             UniqueMode unique,
+                                             boolean required) {
+        if (hasAggregates()) {
+            // Hit counts already come from exact rollups, only exact unique counts scan raw hits.
+            if (!isEstimated(start, end, uris, unique, required)) {
+                return null;
             }
-            log.info("StatsService.getStats(): A list with unique hits was received successfully.");
-            log.info("StatsService.getStats(): Collecting statistics based on a list uniqueHitsByIp.");
-            return toViewStatsDtoList(uniqueHitsByIp.values());
+            log.info("StatsService.getStats(): Estimating unique statistics from sketches instead of raw hits, uris={}.", uris);
+            return getApproximateUniqueStats(planSegments(start, end), uris);
         }
 
-        log.info("StatsService.getStats(): Collecting statistics based on a list hits.");
-        return toViewStatsDtoList(hits);
+        // Distinct counts cannot be scaled up from a sample, so unique statistics stay exact.
+        if (unique != UniqueMode.NONE) {
+            return null;
+        }
+        // Below the threshold the repository counts exactly instead, and that answer is used as it is.
+        List<ViewStatsDto> stats = statsRepository.sampleStatsInRange(start, end.plusSeconds(1), uris,
+                samplingProperties.getRate(), required ? 0 : samplingProperties.getRowThreshold());
+        if (stats.stream().anyMatch(row -> row.getError() != null)) {
+            log.info("StatsService.getStats(): Statistics estimated from a {} sample of hits, uris={}.", samplingProperties.getRate(), uris);
+        } else {
+            log.info("StatsService.getStats(): Statistics counted exactly from raw hits, uris={}.", uris);
+        }
+        return stats.stream()
+                .sorted(Comparator.comparing(ViewStatsDto::getHits).reversed())
+                .toList();
     }
 
-    private List<ViewStatsDto> toViewStatsDtoList(Collection<EndpointHit> hits) {
-        log.info("StatsService: Beginning of method execution toViewStatsDtoList().");
-        log.info("StatsService.toViewStatsDtoList(): Start collecting statistics.");
-        Map<String, Map<String, Long>> groupedStats = hits.stream()
-                .collect(Collectors.groupingBy(EndpointHit::getApp,
-                        Collectors.groupingBy(EndpointHit::getUri, Collectors.counting())));
+    /**
+     * Tells whether exact unique counts should come from sketches: when asked to, or when they would read more
+     * than {@code stats.sampling.row-threshold} raw hits.
+     */
+    private boolean isEstimated(LocalDateTime start, LocalDateTime end, List<String> uris, UniqueMode unique, boolean required) {
+        if (unique != UniqueMode.EXACT) {
+            return false;
+        }
+        return required || countHits(start, end, uris) >= samplingProperties.getRowThreshold();
+    }
+
+    // Daily rollups count every hit, so they tell cheaply how many raw rows an exact query would read.
+    private long countHits(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        LocalDateTime from = Granularity.DAY.floor(start);
+        LocalDateTime to = Granularity.DAY.ceil(end.plusSeconds(1));
+        List<ViewStatsDto> hits = uris != null
+                ? rollupRepository.sumHitsByUris(Granularity.DAY, from, to, uris)
+                : rollupRepository.sumHits(Granularity.DAY, from, to);
+        return hits.stream().mapToLong(ViewStatsDto::getHits).sum();
+    }
 
-        List<ViewStatsDto> result = groupedStats.entrySet().stream()
+    private boolean hasAggregates() {
+        return storageProperties.getEngine() == StorageEngine.POSTGRES;
+    }
+
+    private boolean isCompacted(LocalDateTime start) {
+        LocalDateTime compactedBefore = hitCompactor.getCompactedBefore();
+        return hasAggregates() && compactedBefore != null && start.isBefore(compactedBefore);
+    }
+
+    private List<ViewStatsDto> limit(List<ViewStatsDto> stats, Integer limit) {
+        return limit != null && stats.size() > limit ? stats.subList(0, limit) : stats;
+    }
+
+    private List<ViewStatsDto> getSegmentStats(RollupSegment segment, List<String> uris) {
+        if (segment.isRaw()) {
+            return statsRepository.getStatsInRange(segment.getFrom(), segment.getTo(), uris);
+        }
+        return uris != null
+                ? rollupRepository.sumHitsByUris(segment.getGranularity(), segment.getFrom(), segment.getTo(), uris)
+                : rollupRepository.sumHits(segment.getGranularity(), segment.getFrom(), segment.getTo());
+    }
+
+    private List<ViewStatsDto> getApproximateUniqueStats(List<RollupSegment> segments, List<String> uris) {
+        Map<String, Map<String, HyperLogLog>> sketches = new HashMap<>();
+        for (RollupSegment segment : segments) {
+            if (segment.isRaw()) {
+                statsRepository.mergeRawHitsInto(segment.getFrom(), segment.getTo(), uris, sketches);
+            } else {
+                sketchRepository.mergeSketchesInto(segment.getGranularity(), segment.getFrom(), segment.getTo(), uris, sketches);
+            }
+        }
+
+        Map<String, Map<String, Long>> estimates = new HashMap<>();
+        sketches.forEach((app, sketchesByUri) -> sketchesByUri.forEach((uri, sketch) ->
+                estimates.computeIfAbsent(app, a -> new HashMap<>()).put(uri, sketch.estimate())));
+
+        List<ViewStatsDto> result = toSortedViewStats(estimates);
+        result.forEach(row -> row.setError(ConfidenceInterval.ofSketch(row.getHits())));
+        log.info("StatsService.getApproximateUniqueStats(): Unique statistics successfully estimated.");
+        return result;
+    }
+
+    private List<ViewStatsDto> toSortedViewStats(Map<String, Map<String, Long>> hitsByAppAndUri) {
+        return hitsByAppAndUri.entrySet().stream()
                 .flatMap(appEntry -> appEntry.getValue().entrySet().stream()
-                        .map(uriEntry -> ViewStatsDto.builder()
-                                .app(appEntry.getKey())
-                                .uri(uriEntry.getKey())
-                                .hits(uriEntry.getValue().intValue())
-                                .build()))
+                        .map(uriEntry -> new ViewStatsDto(appEntry.getKey(), uriEntry.getKey(), uriEntry.getValue())))
                 .sorted(Comparator.comparing(ViewStatsDto::getHits).reversed())
                 .toList();
-        log.info("StatsService.toViewStatsDtoList(): Statistics successfully collected.");
-        return result;
     }
 }
@@ -0,0 +1,96 @@
+package ru.practicum.statsserver.stats.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statsserver.stats.exception.exception.BadRequestException;
+import ru.practicum.statsserver.stats.model.DictionaryKind;
+import ru.practicum.statsserver.stats.repository.DictionaryRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Expands uri patterns ending with {@code *}, such as {@code /events/*}, into the known uris that start with
+ * the prefix, looked up in the uri dictionary. Plain uris are passed through unchanged. A request whose
+ * patterns match more than {@code stats.patterns.max-uris} uris in total is rejected rather than expanded.
+ */
+@Component
+@RequiredArgsConstructor
+public class UriPatternResolver {
+    private static final String WILDCARD = "*";
+
+    private final DictionaryRepository dictionaryRepository;
+    private final PatternProperties patternProperties;
+
+    public boolean hasPatterns(List<String> uris) {
+        return uris != null && uris.stream().anyMatch(uri -> uri.contains(WILDCARD));
+    }
+
+    public Resolution resolve(List<String> uris) {
+        Set<String> resolved = new LinkedHashSet<>();
+        Map<String, List<String>> patternsByUri = new HashMap<>();
+        int maxUris = patternProperties.getMaxUris();
+        for (String uri : uris) {
+            int wildcard = uri.indexOf(WILDCARD);
+            if (wildcard < 0) {
+                resolved.add(uri);
+                continue;
+            }
+            if (wildcard != uri.length() - 1) {
+                throw new BadRequestException(String.format("Only a trailing * is supported in uri patterns, but was %s.", uri));
+            }
+            // One match past the remaining room is enough to tell that the patterns are too broad.
+            int room = maxUris - patternsByUri.size();
+            List<String> matches = dictionaryRepository.findNamesByPrefix(DictionaryKind.URI, uri.substring(0, wildcard),
+                    room + 1);
+            if (matches.size() > room) {
+                throw new BadRequestException(String.format("Uri patterns may match at most %d uris, but %s matches more.",
+                        maxUris, uri));
+            }
+            for (String match : matches) {
+                resolved.add(match);
+                patternsByUri.computeIfAbsent(match, m -> new ArrayList<>()).add(uri);
+            }
+        }
+        return new Resolution(new ArrayList<>(resolved), patternsByUri);
+    }
+
+    public record Resolution(List<String> uris, Map<String, List<String>> patternsByUri) {
+        /**
+         * Folds per-uri rows into one row per app and pattern. Rows of uris requested by exact name are kept, and
+         * a uri matched by several patterns counts towards each of them. Unique counts are summed per uri, so a
+         * visitor of two uris under one pattern is counted twice.
+         */
+        public List<ViewStatsDto> aggregate(List<ViewStatsDto> stats, List<String> requested) {
+            Set<String> exact = new LinkedHashSet<>(requested);
+            Map<String, Map<String, ViewStatsDto>> totalsByAppAndUri = new HashMap<>();
+            for (ViewStatsDto row : stats) {
+                List<String> targets = new ArrayList<>(patternsByUri.getOrDefault(row.getUri(), List.of()));
+                if (exact.contains(row.getUri())) {
+                    targets.add(row.getUri());
+                }
+                for (String target : targets) {
+                    ViewStatsDto total = totalsByAppAndUri.computeIfAbsent(row.getApp(), app -> new HashMap<>())
+                            .computeIfAbsent(target, uri -> new ViewStatsDto(row.getApp(), uri, 0L));
+                    total.setHits(total.getHits() + row.getHits());
+                    if (row.getError() != null) {
+                        // Errors of independent estimates add in quadrature.
+                        long error = total.getError() != null ? total.getError() : 0;
+                        total.setError(Math.round(Math.hypot(error, row.getError())));
+                    }
+                }
+            }
+
+            List<ViewStatsDto> result = new ArrayList<>();
+            totalsByAppAndUri.values().forEach(totalsByUri -> result.addAll(totalsByUri.values()));
+            result.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package ru.practicum.statsserver.stats.sketch;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog distinct counter with 2^12 registers. The relative standard error of
+ * {@link #estimate()} is 1.04 / sqrt(4096), about 1.6%, so roughly 95% of estimates fall within 3.3%
+ * of the exact count. Sketches with the same precision merge losslessly by taking the register-wise maximum.
+ *
+ * <p>The serialized form is a single format byte followed by either the sparse list of non-zero registers
+ * (three bytes each) or all registers packed into six bits each, whichever is smaller.
+ */
+public class HyperLogLog {
+    public static final int PRECISION = 12;
+    public static final int REGISTER_COUNT = 1 << PRECISION;
+    public static final double RELATIVE_STANDARD_ERROR = 1.04 / Math.sqrt(REGISTER_COUNT);
+
+    private static final byte SPARSE = 0;
+    private static final byte DENSE = 1;
+    private static final int DENSE_SIZE = REGISTER_COUNT * 6 / 8;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTER_COUNT];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public void add(String value) {
+        addHash(hash(value));
+    }
+
+    /**
+     * Adds a value by its 64-bit hash, which must already be uniformly mixed. Sketches built this way can only be
+     * merged with sketches that hash their values the same way.
+     */
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        long remainder = (hash << PRECISION) | (1L << (PRECISION - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remainder) + 1);
+        if (registers[index] < rank) {
+            registers[index] = rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (registers[i] < other.registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+        if (estimate <= 2.5 * REGISTER_COUNT && zeros > 0) {
+            estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        int nonZero = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                nonZero++;
+            }
+        }
+
+        if (nonZero * 3 < DENSE_SIZE) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(1 + nonZero * 3);
+            out.write(SPARSE);
+            for (int i = 0; i < REGISTER_COUNT; i++) {
+                if (registers[i] != 0) {
+                    int entry = (i << 6) | registers[i];
+                    out.write(entry >>> 16);
+                    out.write(entry >>> 8);
+                    out.write(entry);
+                }
+            }
+            return out.toByteArray();
+        }
+
+        byte[] bytes = new byte[1 + DENSE_SIZE];
+        bytes[0] = DENSE;
+        for (int i = 0; i < REGISTER_COUNT; i += 4) {
+            int packed = (registers[i] << 18) | (registers[i + 1] << 12) | (registers[i + 2] << 6) | registers[i + 3];
+            int offset = 1 + i / 4 * 3;
+            bytes[offset] = (byte) (packed >>> 16);
+            bytes[offset + 1] = (byte) (packed >>> 8);
+            bytes[offset + 2] = (byte) packed;
+        }
+        return bytes;
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        byte[] registers = new byte[REGISTER_COUNT];
+        if (bytes[0] == SPARSE) {
+            for (int offset = 1; offset + 2 < bytes.length; offset += 3) {
+                int entry = ((bytes[offset] & 0xFF) << 16) | ((bytes[offset + 1] & 0xFF) << 8) | (bytes[offset + 2] & 0xFF);
+                registers[entry >>> 6] = (byte) (entry & 0x3F);
+            }
+        } else {
+            for (int i = 0; i < REGISTER_COUNT; i += 4) {
+                int offset = 1 + i / 4 * 3;
+                int packed = ((bytes[offset] & 0xFF) << 16) | ((bytes[offset + 1] & 0xFF) << 8) | (bytes[offset + 2] & 0xFF);
+                registers[i] = (byte) ((packed >>> 18) & 0x3F);
+                registers[i + 1] = (byte) ((packed >>> 12) & 0x3F);
+                registers[i + 2] = (byte) ((packed >>> 6) & 0x3F);
+                registers[i + 3] = (byte) (packed & 0x3F);
+            }
+        }
+        return new HyperLogLog(registers);
+    }
+
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
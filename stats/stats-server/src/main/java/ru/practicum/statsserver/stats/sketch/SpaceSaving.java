@@ -0,0 +1,62 @@
+package ru.practicum.statsserver.stats.sketch;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+
+/**
+ * Space-Saving heavy-hitters summary that monitors at most {@code capacity} items. When a new item arrives
+ * and the summary is full, it takes over the least frequent slot and inherits its count, so every reported
+ * count overestimates the true one by at most the smallest monitored count. Not thread-safe.
+ */
+public class SpaceSaving {
+    private static final Comparator<Counter> BY_COUNT = Comparator.<Counter>comparingLong(counter -> counter.count)
+            .thenComparing(counter -> counter.item);
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>(BY_COUNT);
+
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void add(String item) {
+        Counter counter = counters.get(item);
+        if (counter == null) {
+            if (counters.size() < capacity) {
+                counter = new Counter(item, 0);
+            } else {
+                Counter evicted = byCount.pollFirst();
+                counters.remove(evicted.item);
+                counter = new Counter(item, evicted.count);
+            }
+            counters.put(item, counter);
+        } else {
+            byCount.remove(counter);
+        }
+        counter.count++;
+        byCount.add(counter);
+    }
+
+    public void forEach(BiConsumer<String, Long> consumer) {
+        counters.values().forEach(counter -> consumer.accept(counter.item, counter.count));
+    }
+
+    public void clear() {
+        counters.clear();
+        byCount.clear();
+    }
+
+    private static final class Counter {
+        private final String item;
+        private long count;
+
+        private Counter(String item, long count) {
+            this.item = item;
+            this.count = count;
+        }
+    }
+}
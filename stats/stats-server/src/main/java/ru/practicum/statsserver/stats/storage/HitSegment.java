@@ -0,0 +1,206 @@
+package ru.practicum.statsserver.stats.storage;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of fixed-width hit records mapped into memory. A record is 36 bytes: the timestamp in epoch
+ * milliseconds, the app and uri dictionary ids, the ip as 16 bytes (IPv4 mapped into IPv6) and a CRC32 of the
+ * preceding 32 bytes. Records are grouped into blocks of {@code indexInterval} and the minimum and maximum
+ * timestamp of every block are kept as a sparse index, so a range scan only reads blocks that can match, and
+ * the minimum and maximum of the whole segment let a query skip it without looking at any block. Sealed and
+ * recovered segments are never written again, so their file channel is closed and only the mapping is kept.
+ *
+ * <p>Only one thread appends. Readers see every record counted before they started scanning.
+ */
+public class HitSegment {
+    public static final int RECORD_SIZE = 36;
+
+    private static final int PAYLOAD_SIZE = 32;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int indexInterval;
+    private final int capacity;
+    private final long createdAt;
+    private final long[] blockMin;
+    private final long[] blockMax;
+    private final CRC32 crc = new CRC32();
+    private volatile long minTimestamp = Long.MAX_VALUE;
+    private volatile long maxTimestamp = Long.MIN_VALUE;
+    private volatile int count;
+
+    private HitSegment(Path path, FileChannel channel, MappedByteBuffer buffer, int indexInterval, long createdAt) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.indexInterval = indexInterval;
+        this.capacity = buffer.capacity() / RECORD_SIZE;
+        this.createdAt = createdAt;
+        int blocks = capacity / indexInterval + 1;
+        this.blockMin = new long[blocks];
+        this.blockMax = new long[blocks];
+        Arrays.fill(blockMin, Long.MAX_VALUE);
+        Arrays.fill(blockMax, Long.MIN_VALUE);
+    }
+
+    public static HitSegment create(Path path, long capacityBytes, int indexInterval, long createdAt) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = capacityBytes / RECORD_SIZE * RECORD_SIZE;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        return new HitSegment(path, channel, buffer, indexInterval, createdAt);
+    }
+
+    /**
+     * Opens an existing segment read-only. Records are validated from the start and the file is truncated
+     * after the last intact one, which removes both the unused preallocated tail and a record torn by a crash.
+     */
+    public static HitSegment recover(Path path, int indexInterval, long createdAt) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size() / RECORD_SIZE * RECORD_SIZE;
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+        CRC32 crc = new CRC32();
+        int valid = 0;
+        for (int offset = 0; offset + RECORD_SIZE <= size; offset += RECORD_SIZE, valid++) {
+            crc.reset();
+            crc.update(mapped.slice(offset, PAYLOAD_SIZE));
+            if ((int) crc.getValue() != mapped.getInt(offset + PAYLOAD_SIZE)) {
+                break;
+            }
+        }
+
+        long validSize = (long) valid * RECORD_SIZE;
+        if (channel.size() > validSize) {
+            channel.truncate(validSize);
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, validSize);
+        }
+
+        HitSegment segment = new HitSegment(path, channel, mapped, indexInterval, createdAt);
+        for (int i = 0; i < valid; i++) {
+            segment.index(i, mapped.getLong(i * RECORD_SIZE));
+        }
+        segment.count = valid;
+        channel.close();
+        return segment;
+    }
+
+    public boolean append(long timestamp, int appId, int uriId, long ipHigh, long ipLow) {
+        int index = count;
+        if (index >= capacity) {
+            return false;
+        }
+
+        int offset = index * RECORD_SIZE;
+        buffer.putLong(offset, timestamp);
+        buffer.putInt(offset + 8, appId);
+        buffer.putInt(offset + 12, uriId);
+        buffer.putLong(offset + 16, ipHigh);
+        buffer.putLong(offset + 24, ipLow);
+        crc.reset();
+        crc.update(buffer.slice(offset, PAYLOAD_SIZE));
+        buffer.putInt(offset + PAYLOAD_SIZE, (int) crc.getValue());
+
+        index(index, timestamp);
+        count = index + 1;
+        return true;
+    }
+
+    public void scan(long from, long to, HitVisitor visitor) {
+        int blocks = getBlockCount();
+        for (int block = 0; block < blocks; block++) {
+            if (overlaps(block, from, to)) {
+                scanBlock(block, from, to, visitor);
+            }
+        }
+    }
+
+    /**
+     * Tells from the segment bounds whether it can hold hits in [from, to).
+     */
+    public boolean overlaps(long from, long to) {
+        return maxTimestamp >= from && minTimestamp < to;
+    }
+
+    public int getBlockCount() {
+        return (count + indexInterval - 1) / indexInterval;
+    }
+
+    /**
+     * Number of records in the block, which only grows while the block is the last one of the active segment.
+     */
+    public int getBlockSize(int block) {
+        return Math.max(Math.min(count, (block + 1) * indexInterval) - block * indexInterval, 0);
+    }
+
+    /**
+     * Tells from the sparse index whether the block can hold hits in [from, to).
+     */
+    public boolean overlaps(int block, long from, long to) {
+        return blockMax[block] >= from && blockMin[block] < to;
+    }
+
+    public void scanBlock(int block, long from, long to, HitVisitor visitor) {
+        int end = Math.min(count, (block + 1) * indexInterval);
+        for (int i = block * indexInterval; i < end; i++) {
+            int offset = i * RECORD_SIZE;
+            long timestamp = buffer.getLong(offset);
+            if (timestamp >= from && timestamp < to) {
+                visitor.visit(timestamp, buffer.getInt(offset + 8), buffer.getInt(offset + 12),
+                        buffer.getLong(offset + 16), buffer.getLong(offset + 24));
+            }
+        }
+    }
+
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * Flushes the segment and cuts the preallocated space after the last record.
+     */
+    public void seal() throws IOException {
+        buffer.force();
+        channel.truncate((long) count * RECORD_SIZE);
+        channel.close();
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    private void index(int record, long timestamp) {
+        int block = record / indexInterval;
+        blockMin[block] = Math.min(blockMin[block], timestamp);
+        blockMax[block] = Math.max(blockMax[block], timestamp);
+        minTimestamp = Math.min(minTimestamp, timestamp);
+        maxTimestamp = Math.max(maxTimestamp, timestamp);
+    }
+
+    @FunctionalInterface
+    public interface HitVisitor {
+        void visit(long timestamp, int appId, int uriId, long ipHigh, long ipLow);
+    }
+}
@@ -0,0 +1,6 @@
+package ru.practicum.statsserver.stats.storage;
+
+public enum StorageEngine {
+    POSTGRES,
+    SEGMENT
+}
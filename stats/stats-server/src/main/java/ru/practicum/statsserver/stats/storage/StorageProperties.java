@@ -0,0 +1,23 @@
+package ru.practicum.statsserver.stats.storage;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "stats.storage")
+public class StorageProperties {
+    private StorageEngine engine = StorageEngine.POSTGRES;
+    private Segment segment = new Segment();
+
+    @Data
+    public static class Segment {
+        private String directory = "data/segments";
+        private Duration rollInterval = Duration.ofHours(1);
+        private DataSize capacity = DataSize.ofMegabytes(64);
+        private int indexInterval = 4096;
+        private Duration retention;
+    }
+}
@@ -0,0 +1,33 @@
+CREATE SEQUENCE IF NOT EXISTS stats_id_seq;
+
+CREATE TABLE IF NOT EXISTS stats (
+    id        BIGINT       NOT NULL DEFAULT nextval('stats_id_seq'),
+    app       VARCHAR(255) NOT NULL,
+    uri       VARCHAR(255) NOT NULL,
+    ip        VARCHAR(45)  NOT NULL,
+    timestamp TIMESTAMP    NOT NULL,
+    CONSTRAINT pk_stats PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- Catches hits outside of every managed partition so ingestion never fails on a missing range.
+CREATE TABLE IF NOT EXISTS stats_default PARTITION OF stats DEFAULT;
+
+CREATE TABLE IF NOT EXISTS stats_rollup (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    granularity  VARCHAR(16)  NOT NULL CHECK (granularity IN ('DAY', 'HOUR', 'MINUTE')),
+    bucket_start TIMESTAMP    NOT NULL,
+    app          VARCHAR(255) NOT NULL,
+    uri          VARCHAR(255) NOT NULL,
+    hits         BIGINT       NOT NULL,
+    CONSTRAINT uq_stats_rollup_bucket UNIQUE (granularity, bucket_start, app, uri)
+);
+
+CREATE TABLE IF NOT EXISTS stats_sketch (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    granularity  VARCHAR(16)  NOT NULL CHECK (granularity IN ('DAY', 'HOUR', 'MINUTE')),
+    bucket_start TIMESTAMP    NOT NULL,
+    app          VARCHAR(255) NOT NULL,
+    uri          VARCHAR(255) NOT NULL,
+    registers    BYTEA        NOT NULL,
+    CONSTRAINT uq_stats_sketch_bucket UNIQUE (granularity, bucket_start, app, uri)
+);
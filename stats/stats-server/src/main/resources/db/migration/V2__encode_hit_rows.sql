@@ -0,0 +1,28 @@
+CREATE TABLE IF NOT EXISTS stats_app (
+    id   SERIAL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    CONSTRAINT uq_stats_app_name UNIQUE (name)
+);
+
+CREATE TABLE IF NOT EXISTS stats_uri (
+    id   SERIAL PRIMARY KEY,
+    name VARCHAR(2048) NOT NULL,
+    CONSTRAINT uq_stats_uri_name UNIQUE (name)
+);
+
+INSERT INTO stats_app (name) SELECT DISTINCT app FROM stats ON CONFLICT DO NOTHING;
+INSERT INTO stats_uri (name) SELECT DISTINCT uri FROM stats ON CONFLICT DO NOTHING;
+
+ALTER TABLE stats
+    ADD COLUMN app_id INTEGER,
+    ADD COLUMN uri_id INTEGER;
+
+UPDATE stats s SET app_id = a.id FROM stats_app a WHERE a.name = s.app;
+UPDATE stats s SET uri_id = u.id FROM stats_uri u WHERE u.name = s.uri;
+
+ALTER TABLE stats
+    ALTER COLUMN app_id SET NOT NULL,
+    ALTER COLUMN uri_id SET NOT NULL,
+    ALTER COLUMN ip TYPE INET USING ip::inet,
+    DROP COLUMN app,
+    DROP COLUMN uri;
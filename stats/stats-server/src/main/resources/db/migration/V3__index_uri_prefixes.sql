@@ -0,0 +1,2 @@
+-- Lets uri patterns such as /events/* be resolved with a LIKE 'prefix%' range scan whatever the database collation is.
+CREATE INDEX IF NOT EXISTS idx_stats_uri_name_prefix ON stats_uri (name text_pattern_ops);
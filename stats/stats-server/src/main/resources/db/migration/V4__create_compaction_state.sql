@@ -0,0 +1,7 @@
+-- Raw hits before compacted_before have been folded into daily rollups and sketches and may be deleted.
+CREATE TABLE IF NOT EXISTS stats_compaction (
+    id               INTEGER PRIMARY KEY CHECK (id = 1),
+    compacted_before TIMESTAMP
+);
+
+INSERT INTO stats_compaction (id, compacted_before) VALUES (1, NULL) ON CONFLICT (id) DO NOTHING;
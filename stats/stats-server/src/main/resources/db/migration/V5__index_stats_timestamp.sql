@@ -0,0 +1,7 @@
+-- Hits arrive in time order, so each block range covers a narrow slice of time and a BRIN index
+-- prunes unfiltered range scans while staying a few pages in size.
+CREATE INDEX IF NOT EXISTS idx_stats_timestamp_brin ON stats USING brin (timestamp) WITH (pages_per_range = 32);
+
+-- Answers uri-filtered range queries with index-only scans: COUNT(*) and COUNT(DISTINCT ip) per app
+-- never touch the heap once autovacuum has marked the append-only pages all-visible.
+CREATE INDEX IF NOT EXISTS idx_stats_uri_id_timestamp ON stats (uri_id, timestamp) INCLUDE (ip, app_id);
@@ -0,0 +1,3 @@
+-- Aggregates are keyed by uri name, so they take any uri the dictionary accepts.
+ALTER TABLE stats_rollup ALTER COLUMN uri TYPE VARCHAR(2048);
+ALTER TABLE stats_sketch ALTER COLUMN uri TYPE VARCHAR(2048);
@@ -0,0 +1,56 @@
+package ru.practicum.statsserver;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Base for tests that need a real Postgres. A throwaway container is started when Docker is available,
+ * otherwise the database given by the {@code STATS_TEST_DATASOURCE_URL} environment variable is used, and
+ * the tests are skipped when there is neither. The schema comes from the Flyway migrations.
+ */
+public abstract class PostgresTest {
+    private static final String DATASOURCE_URL = System.getenv("STATS_TEST_DATASOURCE_URL");
+    private static PostgreSQLContainer<?> container;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    // Runs before the application context is loaded, so nothing tries to connect when the tests are skipped.
+    @BeforeAll
+    static void requirePostgres() {
+        assumeTrue(DATASOURCE_URL != null || DockerClientFactory.instance().isDockerAvailable(),
+                "Neither Docker nor STATS_TEST_DATASOURCE_URL is available.");
+    }
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        if (DATASOURCE_URL != null) {
+            registry.add("spring.datasource.url", () -> DATASOURCE_URL);
+            return;
+        }
+        PostgreSQLContainer<?> postgres = startContainer();
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    // Dictionaries are cached in process and shared by every test context, so only hits and aggregates are cleared.
+    protected void clearHits() {
+        jdbcTemplate.execute("TRUNCATE stats, stats_rollup, stats_sketch");
+    }
+
+    private static synchronized PostgreSQLContainer<?> startContainer() {
+        if (container == null) {
+            container = new PostgreSQLContainer<>("postgres:16-alpine");
+            container.start();
+        }
+        return container;
+    }
+}
@@ -0,0 +1,102 @@
+package ru.practicum.statsserver.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.statsserver.PostgresTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares ingest throughput of one POST /hit per hit with POST /hits batches, both sent over HTTP by
+ * {@value #CLIENTS} concurrent clients the way main-service instances would send them. Request logging is
+ * turned down so that it does not dominate the measurement.
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "stats.admission.enabled=false",
+        "logging.level.ru.practicum.statsserver.stats=WARN",
+        "logging.level.org.springframework.transaction.interceptor=INFO"})
+class IngestBenchmarkTest extends PostgresTest {
+    private static final int CLIENTS = 8;
+    private static final int BATCH_SIZE = 500;
+    private static final int WARMUP_HITS = CLIENTS * BATCH_SIZE;
+    private static final int SINGLE_HITS = 4 * CLIENTS * BATCH_SIZE;
+    private static final int BATCH_HITS = 40 * CLIENTS * BATCH_SIZE;
+    private static final int URIS = 200;
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Test
+    void compareSingleHitAndBatchIngestion() throws Exception {
+        clearHits();
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        runSingle(now, WARMUP_HITS);
+        runBatches(now, WARMUP_HITS);
+
+        double single = runSingle(now, SINGLE_HITS);
+        double batch = runBatches(now, BATCH_HITS);
+
+        log.info("IngestBenchmark: POST /hit  {} hits/s", Math.round(single));
+        log.info("IngestBenchmark: POST /hits {} hits/s in batches of {}, {}x", Math.round(batch), BATCH_SIZE,
+                String.format("%.1f", batch / single));
+        assertEquals(2 * WARMUP_HITS + SINGLE_HITS + BATCH_HITS, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats", Long.class));
+    }
+
+    private double runSingle(LocalDateTime now, int hits) throws Exception {
+        return run(hits / CLIENTS, request -> assertEquals(HttpStatus.CREATED,
+                rest.postForEntity("/hit", hit(now, request), Void.class).getStatusCode()), hits);
+    }
+
+    private double runBatches(LocalDateTime now, int hits) throws Exception {
+        return run(hits / BATCH_SIZE / CLIENTS, request -> {
+            List<EndpointHitDto> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                batch.add(hit(now, request * BATCH_SIZE + i));
+            }
+            assertEquals(HttpStatus.CREATED, rest.postForEntity("/hits", batch, Void.class).getStatusCode());
+        }, hits);
+    }
+
+    private static double run(int requestsPerClient, IntConsumer request, int hits) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            long started = System.nanoTime();
+            List<Future<?>> done = new ArrayList<>();
+            for (int client = 0; client < CLIENTS; client++) {
+                int first = client * requestsPerClient;
+                done.add(clients.submit(() -> {
+                    for (int i = first; i < first + requestsPerClient; i++) {
+                        request.accept(i);
+                    }
+                }));
+            }
+            for (Future<?> future : done) {
+                future.get();
+            }
+            return hits * 1e9 / (System.nanoTime() - started);
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    private static EndpointHitDto hit(LocalDateTime now, int i) {
+        return new EndpointHitDto("ewm-main-service", "/events/" + i % URIS,
+                "10.0." + (i >>> 8 & 0xFF) + "." + (i & 0xFF), now.minusSeconds(i % 3600));
+    }
+}
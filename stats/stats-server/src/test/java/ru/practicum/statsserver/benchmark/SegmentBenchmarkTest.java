@@ -0,0 +1,119 @@
+package ru.practicum.statsserver.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.statsserver.PostgresTest;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.repository.HitDictionary;
+import ru.practicum.statsserver.stats.repository.SegmentStatsRepository;
+import ru.practicum.statsserver.stats.repository.StatsRepository;
+import ru.practicum.statsserver.stats.storage.StorageProperties;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the raw-hit paths of both storage engines on the same hits: writing them in batches, counting hits
+ * and unique ips for one day, and counting hits for the whole month. Segments are kept small so that the
+ * one-day queries can skip most of them.
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(properties = "logging.level.org.springframework.transaction.interceptor=INFO")
+class SegmentBenchmarkTest extends PostgresTest {
+    private static final int HITS = 300_000;
+    private static final int BATCH_SIZE = 5_000;
+    private static final int URIS = 200;
+    private static final int DAYS = 30;
+    private static final int RUNS = 20;
+
+    @Autowired
+    private StatsRepository postgres;
+    @Autowired
+    private HitDictionary hitDictionary;
+    @TempDir
+    private Path directory;
+    private SegmentStatsRepository segment;
+
+    @BeforeEach
+    void setUp() {
+        clearHits();
+        StorageProperties properties = new StorageProperties();
+        properties.getSegment().setDirectory(directory.toString());
+        properties.getSegment().setCapacity(DataSize.ofMegabytes(1));
+        segment = new SegmentStatsRepository(properties, hitDictionary);
+        segment.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        segment.stop();
+    }
+
+    @Test
+    void compareSegmentAndPostgresEngines() {
+        LocalDateTime end = LocalDateTime.now().withNano(0);
+        LocalDateTime start = end.minusDays(DAYS);
+        List<List<EndpointHit>> batches = createBatches(start);
+        batches.forEach(hitDictionary::intern);
+
+        compare("write " + HITS + " hits", repository -> batches.forEach(repository::saveAll), 1);
+
+        LocalDateTime dayStart = end.minusDays(DAYS / 2);
+        LocalDateTime dayEnd = dayStart.plusDays(1);
+        compare("hits for one day", repository -> repository.getStatsInRange(dayStart, dayEnd, null), RUNS);
+        compare("unique ips for one day", repository -> repository.getUniqueStats(dayStart, dayEnd, null, null), RUNS);
+        compare("hits for " + DAYS + " days", repository -> repository.getStatsInRange(start, end.plusSeconds(1), null), RUNS);
+
+        long postgresHits = postgres.getStatsInRange(start, end.plusSeconds(1), null).stream().mapToLong(row -> row.getHits()).sum();
+        long segmentHits = segment.getStatsInRange(start, end.plusSeconds(1), null).stream().mapToLong(row -> row.getHits()).sum();
+        assertEquals(HITS, postgresHits);
+        assertEquals(HITS, segmentHits);
+    }
+
+    private void compare(String operation, Consumer<StatsRepository> run, int runs) {
+        if (runs > 1) {
+            run.accept(postgres);
+            run.accept(segment);
+        }
+        double postgresMillis = time(() -> run.accept(postgres), runs);
+        double segmentMillis = time(() -> run.accept(segment), runs);
+        log.info("SegmentBenchmark: {}: postgres {} ms, segment {} ms, {}x", operation, String.format("%.1f", postgresMillis),
+                String.format("%.1f", segmentMillis), String.format("%.1f", postgresMillis / segmentMillis));
+    }
+
+    private static double time(Runnable run, int runs) {
+        long started = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            run.run();
+        }
+        return (System.nanoTime() - started) / 1e6 / runs;
+    }
+
+    // Hits arrive in time order, as they would in production, so every segment covers a short span of time.
+    private static List<List<EndpointHit>> createBatches(LocalDateTime start) {
+        long step = DAYS * 24L * 3600 * 1000 / HITS;
+        List<List<EndpointHit>> batches = new ArrayList<>();
+        for (int i = 0; i < HITS; i += BATCH_SIZE) {
+            List<EndpointHit> batch = new ArrayList<>(BATCH_SIZE);
+            for (int j = i; j < i + BATCH_SIZE; j++) {
+                batch.add(new EndpointHit("ewm-main-service", "/events/" + j % URIS,
+                        "10.0." + (j >>> 8 & 0xFF) + "." + (j & 0xFF), start.plusNanos(j * step * 1_000_000)));
+            }
+            batches.add(batch);
+        }
+        return batches;
+    }
+}
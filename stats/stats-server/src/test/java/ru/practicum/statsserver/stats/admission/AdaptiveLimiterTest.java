@@ -0,0 +1,51 @@
+package ru.practicum.statsserver.stats.admission;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveLimiterTest {
+    private static final long SLOW = Duration.ofSeconds(1).toNanos();
+
+    private final AtomicLong now = new AtomicLong();
+    private AdaptiveLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        AdmissionProperties.Limit properties = new AdmissionProperties.Limit();
+        properties.setInitialLimit(100);
+        properties.setLatencyThreshold(Duration.ofMillis(500));
+        limiter = new AdaptiveLimiter(properties, now::get);
+    }
+
+    @Test
+    void slowCompletionsInOneWindowBackOffOnce() {
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        for (int i = 0; i < 50; i++) {
+            limiter.release(SLOW, false);
+        }
+
+        assertEquals(90, limiter.getLimit());
+    }
+
+    @Test
+    void slowCompletionsInLaterWindowsBackOffAgain() {
+        limiter.tryAcquire();
+        limiter.release(SLOW, false);
+        now.addAndGet(Duration.ofMillis(499).toNanos());
+        limiter.tryAcquire();
+        limiter.release(SLOW, true);
+        now.addAndGet(Duration.ofMillis(1).toNanos());
+        limiter.tryAcquire();
+        limiter.release(SLOW, false);
+
+        assertEquals(81, limiter.getLimit());
+    }
+}
@@ -0,0 +1,72 @@
+package ru.practicum.statsserver.stats.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.practicum.statsserver.stats.exception.exception.ServiceUnavailableException;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionInterceptorTest {
+    private SimpleMeterRegistry meterRegistry;
+    private AdmissionInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.getQuery().setLatencyThreshold(Duration.ZERO);
+        properties.getStream().setMaxConcurrent(2);
+        meterRegistry = new SimpleMeterRegistry();
+        interceptor = new AdmissionInterceptor(properties, meterRegistry);
+    }
+
+    @Test
+    void streamsDoNotBackOffQueryLimit() {
+        for (int i = 0; i < 20; i++) {
+            complete(streamRequest());
+        }
+        assertEquals(20, queryLimit());
+
+        complete(new MockHttpServletRequest("GET", "/stats"));
+
+        assertEquals(18, queryLimit());
+    }
+
+    @Test
+    void streamsAreCappedAtMaxConcurrent() {
+        MockHttpServletRequest first = streamRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertTrue(interceptor.preHandle(first, response, new Object()));
+        assertTrue(interceptor.preHandle(streamRequest(), response, new Object()));
+
+        assertThrows(ServiceUnavailableException.class, () -> interceptor.preHandle(streamRequest(), response, new Object()));
+
+        interceptor.afterCompletion(first, response, new Object(), null);
+        assertTrue(interceptor.preHandle(streamRequest(), response, new Object()));
+    }
+
+    private void complete(MockHttpServletRequest request) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertTrue(interceptor.preHandle(request, response, new Object()));
+        interceptor.afterCompletion(request, response, new Object(), null);
+    }
+
+    private double queryLimit() {
+        return meterRegistry.get("stats.admission.limit").tag("path", "query").gauge().value();
+    }
+
+    private static MockHttpServletRequest streamRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/stats");
+        request.setAttribute(HandlerMapping.PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE, Set.of(MediaType.APPLICATION_NDJSON));
+        return request;
+    }
+}
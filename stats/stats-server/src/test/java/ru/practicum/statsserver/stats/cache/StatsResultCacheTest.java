@@ -0,0 +1,67 @@
+package ru.practicum.statsserver.stats.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.UniqueMode;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatsResultCacheTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 3, 31, 23, 59, 59);
+    private static final StatsQuery QUERY = StatsQuery.of(START, END, null, UniqueMode.NONE, null, false, null);
+
+    private StatsResultCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new StatsResultCache(new CacheProperties(), new SimpleMeterRegistry());
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void settledResultIsLoadedOnce() {
+        cache.get(QUERY, this::load);
+        cache.get(QUERY, this::load);
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void lateHitCommittedDuringLoadKeepsResultOutOfCache() {
+        cache.get(QUERY, () -> {
+            List<ViewStatsDto> stale = load();
+            cache.onHits(List.of(new EndpointHit("ewm-main-service", "/events/1", "10.0.0.1", START.plusDays(3))));
+            return stale;
+        });
+        cache.get(QUERY, this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidationDuringLoadKeepsResultOutOfCache() {
+        cache.get(QUERY, () -> {
+            List<ViewStatsDto> stale = load();
+            cache.invalidateAll();
+            return stale;
+        });
+        cache.get(QUERY, this::load);
+        cache.get(QUERY, this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    private List<ViewStatsDto> load() {
+        loads.incrementAndGet();
+        return List.of(new ViewStatsDto("ewm-main-service", "/events/1", 1L));
+    }
+}
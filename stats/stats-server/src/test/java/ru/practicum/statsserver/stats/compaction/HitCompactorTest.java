@@ -0,0 +1,82 @@
+package ru.practicum.statsserver.stats.compaction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.statsserver.PostgresTest;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.partition.PartitionMaintenance;
+import ru.practicum.statsserver.stats.service.HitWriter;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+class HitCompactorTest extends PostgresTest {
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2020, 2, 10, 0, 0);
+
+    @Autowired
+    private HitCompactor hitCompactor;
+    @Autowired
+    private CompactionProperties properties;
+    @Autowired
+    private PartitionMaintenance partitionMaintenance;
+    @Autowired
+    private HitWriter hitWriter;
+
+    @BeforeEach
+    void setUp() {
+        clearHits();
+    }
+
+    @AfterEach
+    void tearDown() {
+        properties.setEnabled(false);
+        properties.setAge(Duration.ofDays(30));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS stats_p202001, stats_p202002");
+        jdbcTemplate.update("UPDATE stats_compaction SET compacted_before = NULL");
+        hitCompactor.refreshCompactedBefore();
+    }
+
+    @Test
+    void compactRemovesWholePartitionsAndDeletesOnlyFromBoundaryPartition() {
+        partitionMaintenance.ensurePartitions(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 2, 1));
+        hitWriter.write(List.of(hit(LocalDateTime.of(2020, 1, 20, 12, 0)),
+                hit(LocalDateTime.of(2020, 2, 5, 12, 0)),
+                hit(LocalDateTime.of(2020, 2, 15, 12, 0))));
+
+        properties.setEnabled(true);
+        properties.setAge(Duration.between(CUTOFF.plusHours(1), LocalDateTime.now()));
+        hitCompactor.compact();
+
+        assertEquals(CUTOFF, hitCompactor.getCompactedBefore());
+        assertFalse(jdbcTemplate.queryForObject("SELECT to_regclass('stats_p202001') IS NOT NULL", Boolean.class));
+        assertEquals(List.of(Timestamp.valueOf(LocalDateTime.of(2020, 2, 15, 12, 0))),
+                jdbcTemplate.queryForList("SELECT timestamp FROM stats_p202002", Timestamp.class));
+        assertEquals(2L, jdbcTemplate.queryForObject(
+                "SELECT SUM(hits) FROM stats_rollup WHERE granularity = 'DAY' AND bucket_start < ?", Long.class,
+                Timestamp.valueOf(CUTOFF)));
+    }
+
+    @Test
+    void refreshPicksUpWatermarkMovedByAnotherInstance() {
+        LocalDateTime moved = LocalDateTime.of(2019, 6, 1, 0, 0);
+        jdbcTemplate.update("UPDATE stats_compaction SET compacted_before = ?", Timestamp.valueOf(moved));
+
+        hitCompactor.refreshCompactedBefore();
+
+        assertEquals(moved, hitCompactor.getCompactedBefore());
+    }
+
+    private static EndpointHit hit(LocalDateTime timestamp) {
+        return new EndpointHit("ewm-main-service", "/events/3", "10.0.0.1", timestamp);
+    }
+}
@@ -0,0 +1,60 @@
+package ru.practicum.statsserver.stats.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.statsserver.PostgresTest;
+import ru.practicum.statsserver.stats.ingest.SketchBuffer;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class StatsControllerTest extends PostgresTest {
+    @Autowired
+    private TestRestTemplate rest;
+    @Autowired
+    private SketchBuffer sketchBuffer;
+
+    @BeforeEach
+    void setUp() {
+        clearHits();
+    }
+
+    @Test
+    void hitWithLongUriIsStoredWithTheRestOfItsBatch() {
+        String uri = "/events/" + "a".repeat(292);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+
+        HttpStatusCode status = rest.postForEntity("/hits", List.of(hit(uri, now), hit("/events/1", now)), Void.class).getStatusCode();
+        sketchBuffer.flush();
+
+        assertEquals(HttpStatus.CREATED, status);
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats", Long.class));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT SUM(hits) FROM stats_rollup WHERE granularity = 'DAY' AND uri = ?", Long.class, uri));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM stats_sketch WHERE granularity = 'DAY' AND uri = ?", Long.class, uri));
+    }
+
+    @Test
+    void hitWithUriLongerThanDictionaryAllowsIsRejected() {
+        String uri = "/events/" + "a".repeat(2041);
+
+        HttpStatusCode status = rest.postForEntity("/hits", List.of(hit(uri, LocalDateTime.now())), Void.class).getStatusCode();
+
+        assertEquals(HttpStatus.BAD_REQUEST, status);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats", Long.class));
+    }
+
+    private static EndpointHitDto hit(String uri, LocalDateTime timestamp) {
+        return new EndpointHitDto("ewm-main-service", uri, "10.0.0.1", timestamp);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.practicum.statsserver.stats.ingest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.statsserver.PostgresTest;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.Granularity;
+import ru.practicum.statsserver.stats.repository.SketchRepository;
+import ru.practicum.statsserver.stats.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class SketchBufferTest extends PostgresTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 14, 0, 0);
+
+    @Autowired
+    private SketchBuffer sketchBuffer;
+    @Autowired
+    private SketchRepository sketchRepository;
+
+    @BeforeEach
+    void setUp() {
+        clearHits();
+    }
+
+    @Test
+    void flushMergesBufferedSketchesWithStoredOnes() {
+        sketchBuffer.add(List.of(hit("10.0.0.1", 1), hit("10.0.0.2", 2), hit("10.0.0.1", 3)));
+        sketchBuffer.flush();
+        assertEquals(2, estimate(Granularity.DAY));
+
+        sketchBuffer.add(List.of(hit("10.0.0.2", 4), hit("10.0.0.3", 5)));
+        sketchBuffer.flush();
+        assertEquals(3, estimate(Granularity.DAY));
+        assertEquals(3, estimate(Granularity.HOUR));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM stats_sketch WHERE granularity = 'DAY' AND uri = '/events/1'", Integer.class));
+    }
+
+    private long estimate(Granularity granularity) {
+        Map<String, Map<String, HyperLogLog>> sketches = new HashMap<>();
+        sketchRepository.mergeSketchesInto(granularity, DAY, DAY.plusDays(1), List.of("/events/1"), sketches);
+        return sketches.get("ewm-main-service").get("/events/1").estimate();
+    }
+
+    private static EndpointHit hit(String ip, int minute) {
+        return new EndpointHit("ewm-main-service", "/events/1", ip, DAY.plusHours(10).plusMinutes(minute));
+    }
+}
@@ -0,0 +1,89 @@
+package ru.practicum.statsserver.stats.partition;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statsserver.PostgresTest;
+import ru.practicum.statsserver.stats.compaction.HitCompactor;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.UniqueMode;
+import ru.practicum.statsserver.stats.service.HitWriter;
+import ru.practicum.statsserver.stats.service.StatsService;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+class PartitionMaintenanceTest extends PostgresTest {
+    private static final String URI = "/events/7";
+
+    @Autowired
+    private PartitionMaintenance partitionMaintenance;
+    @Autowired
+    private PartitionProperties properties;
+    @Autowired
+    private HitWriter hitWriter;
+    @Autowired
+    private HitCompactor hitCompactor;
+    @Autowired
+    private StatsService statsService;
+
+    @BeforeEach
+    void setUp() {
+        clearHits();
+    }
+
+    @AfterEach
+    void tearDown() {
+        properties.setRetention(null);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS stats_p203105, stats_p202001");
+        jdbcTemplate.update("UPDATE stats_compaction SET compacted_before = NULL");
+        hitCompactor.refreshCompactedBefore();
+    }
+
+    @Test
+    void createPartitionMovesHitsOutOfDefaultPartition() {
+        hitWriter.write(List.of(hit("10.0.0.1", LocalDateTime.of(2031, 5, 17, 12, 0))));
+        assertEquals(1, countRows("stats_default"));
+
+        partitionMaintenance.ensurePartitions(LocalDate.of(2031, 5, 1), LocalDate.of(2031, 5, 1));
+
+        assertEquals(0, countRows("stats_default"));
+        assertEquals(1, countRows("stats_p203105"));
+        hitWriter.write(List.of(hit("10.0.0.2", LocalDateTime.of(2031, 5, 18, 12, 0))));
+        assertEquals(2, countRows("stats_p203105"));
+    }
+
+    @Test
+    void retentionFoldsHitsBeforeDroppingPartition() {
+        partitionMaintenance.ensurePartitions(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 1));
+        LocalDateTime day = LocalDateTime.of(2020, 1, 10, 8, 0);
+        hitWriter.write(List.of(hit("10.0.0.1", day), hit("10.0.0.2", day.plusHours(1)), hit("10.0.0.1", day.plusDays(1))));
+
+        properties.setRetention(Duration.ofDays(400));
+        partitionMaintenance.applyRetention();
+
+        assertFalse(jdbcTemplate.queryForObject("SELECT to_regclass('stats_p202001') IS NOT NULL", Boolean.class));
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2020, 1, 31, 23, 59, 59);
+        assertEquals(3, statsService.getStats(start, end, List.of(URI), UniqueMode.NONE, null, false, false).get(0).getHits());
+        ViewStatsDto unique = statsService.getStats(start, end, List.of(URI), UniqueMode.EXACT, null, false, false).get(0);
+        assertEquals(2, unique.getHits());
+    }
+
+    private long countRows(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    private static EndpointHit hit(String ip, LocalDateTime timestamp) {
+        return new EndpointHit("ewm-main-service", URI, ip, timestamp);
+    }
+}
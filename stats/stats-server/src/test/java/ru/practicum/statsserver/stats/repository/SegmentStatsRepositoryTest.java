@@ -0,0 +1,121 @@
+package ru.practicum.statsserver.stats.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statsserver.stats.model.DictionaryKind;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.sketch.HyperLogLog;
+import ru.practicum.statsserver.stats.storage.StorageProperties;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SegmentStatsRepositoryTest {
+    private static final String APP = "ewm-main-service";
+    private static final String URI = "/events/1";
+
+    @TempDir
+    private Path directory;
+    private StorageProperties storageProperties;
+    private SegmentStatsRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        storageProperties = new StorageProperties();
+        storageProperties.getSegment().setDirectory(directory.toString());
+        HitDictionary hitDictionary = mock(HitDictionary.class);
+        when(hitDictionary.encode(eq(DictionaryKind.APP), anyString())).thenReturn(1);
+        when(hitDictionary.encode(eq(DictionaryKind.URI), anyString())).thenReturn(2);
+        when(hitDictionary.decode(eq(DictionaryKind.APP), anyInt())).thenReturn(APP);
+        when(hitDictionary.decode(eq(DictionaryKind.URI), anyInt())).thenReturn(URI);
+        repository = new SegmentStatsRepository(storageProperties, hitDictionary);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.stop();
+    }
+
+    @Test
+    void rollRetiresSegmentsOlderThanRetention() throws IOException {
+        storageProperties.getSegment().setRollInterval(Duration.ZERO);
+        storageProperties.getSegment().setRetention(Duration.ofDays(1));
+        repository.start();
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+
+        repository.saveAll(List.of(hit("10.0.0.1", now.minusDays(3))));
+        repository.saveAll(List.of(hit("10.0.0.2", now)));
+
+        assertEquals(1, countSegmentFiles());
+        List<ViewStatsDto> stats = repository.getStatsInRange(now.minusYears(1), now.plusDays(1), null);
+        assertEquals(1, stats.get(0).getHits());
+    }
+
+    @Test
+    void mergeRawHitsIntoSketchesDistinctIps() {
+        repository.start();
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            hits.add(hit("10.0." + (i % 2000 >>> 8) + "." + (i % 2000 & 0xFF), now.minusSeconds(i)));
+        }
+        repository.saveAll(hits);
+
+        Map<String, Map<String, HyperLogLog>> sketches = new HashMap<>();
+        repository.mergeRawHitsInto(now.minusDays(1), now.plusSeconds(1), null, sketches);
+
+        long estimate = sketches.get(APP).get(URI).estimate();
+        assertTrue(Math.abs(estimate - 2000) < 2000 * 3 * HyperLogLog.RELATIVE_STANDARD_ERROR, "Estimate was " + estimate);
+    }
+
+    @Test
+    void sampleStatsInRangeCountsExactlyBelowRowThreshold() {
+        storageProperties.getSegment().setIndexInterval(16);
+        repository.start();
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            hits.add(hit("10.0.0.1", now.minusSeconds(20_000 - i)));
+        }
+        repository.saveAll(hits);
+
+        ViewStatsDto exact = repository.sampleStatsInRange(now.minusDays(1), now, null, 0.1, 100_000).get(0);
+        ViewStatsDto estimated = repository.sampleStatsInRange(now.minusDays(1), now, null, 0.1, 10_000).get(0);
+
+        assertEquals(20_000, exact.getHits());
+        assertNull(exact.getError());
+        assertEquals(20_000, estimated.getHits());
+        assertNotNull(estimated.getError());
+    }
+
+    private long countSegmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static EndpointHit hit(String ip, LocalDateTime timestamp) {
+        return new EndpointHit(APP, URI, ip, timestamp);
+    }
+}
@@ -0,0 +1,126 @@
+package ru.practicum.statsserver.stats.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.statsserver.PostgresTest;
+import ru.practicum.statsserver.stats.model.DictionaryKind;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.partition.PartitionMaintenance;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the plans Postgres picks for the range queries of {@link PostgresStatsRepository} over a month of
+ * hits written in time order, the way they arrive.
+ */
+@SpringBootTest
+class StatsIndexTest extends PostgresTest {
+    private static final String APP = "ewm-main-service";
+    private static final int URIS = 50;
+    private static final int HITS = 200_000;
+    private static final LocalDateTime MONTH = LocalDateTime.of(2021, 3, 1, 0, 0);
+    private static final LocalDateTime FROM = MONTH.plusDays(10);
+    private static final LocalDateTime TO = MONTH.plusDays(11);
+
+    @Autowired
+    private PartitionMaintenance partitionMaintenance;
+    @Autowired
+    private HitDictionary hitDictionary;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private int uriId;
+
+    @BeforeEach
+    void setUp() {
+        clearHits();
+        partitionMaintenance.ensurePartitions(MONTH.toLocalDate(), MONTH.toLocalDate());
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < URIS; i++) {
+            hits.add(new EndpointHit(APP, "/events/" + i, "10.0.0.1", MONTH));
+        }
+        hitDictionary.intern(hits);
+        Integer[] uriIds = hits.stream()
+                .map(hit -> hitDictionary.encode(DictionaryKind.URI, hit.getUri()))
+                .toArray(Integer[]::new);
+        uriId = uriIds[7];
+
+        // One hit every 13 seconds fills the month, spread over the uris and a few thousand ips.
+        jdbcTemplate.update("INSERT INTO stats (app_id, uri_id, ip, timestamp) " +
+                        "SELECT ?, (?::int[])[1 + i % " + URIS + "], ('10.' || i % 7 || '.' || i % 29 || '.' || i % 31)::inet, " +
+                        "?::timestamp + i * interval '13 seconds' FROM generate_series(0, ?) i",
+                hitDictionary.encode(DictionaryKind.APP, APP), uriIds, Timestamp.valueOf(MONTH), HITS - 1);
+        jdbcTemplate.execute("VACUUM ANALYZE stats_p202103");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS stats_p202103");
+    }
+
+    @Test
+    void rangeQueryScansBrinIndex() throws Exception {
+        List<JsonNode> nodes = explain("SELECT app_id, uri_id, COUNT(*) AS hits FROM stats " +
+                "WHERE timestamp >= ? AND timestamp < ? GROUP BY app_id, uri_id");
+
+        JsonNode indexScan = nodes.stream()
+                .filter(node -> "Bitmap Index Scan".equals(node.path("Node Type").asText()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No bitmap index scan in " + nodes));
+        assertEquals("brin", accessMethod(indexScan.path("Index Name").asText()));
+        assertFalse(hasNode(nodes, "Seq Scan"));
+    }
+
+    @Test
+    void uriRangeQueriesScanCoveringIndexOnly() throws Exception {
+        String where = " FROM stats WHERE timestamp >= ? AND timestamp < ? AND uri_id IN (?) GROUP BY app_id, uri_id";
+
+        for (String select : List.of("SELECT app_id, uri_id, COUNT(*) AS hits", "SELECT app_id, uri_id, COUNT(DISTINCT ip) AS hits")) {
+            List<JsonNode> nodes = explain(select + where, uriId);
+
+            assertTrue(hasNode(nodes, "Index Only Scan"), "No index-only scan in " + nodes);
+            assertFalse(hasNode(nodes, "Seq Scan"));
+            assertFalse(hasNode(nodes, "Bitmap Heap Scan"));
+        }
+    }
+
+    private List<JsonNode> explain(String sql, Object... parameters) throws Exception {
+        Object[] arguments = new Object[parameters.length + 2];
+        arguments[0] = Timestamp.valueOf(FROM);
+        arguments[1] = Timestamp.valueOf(TO);
+        System.arraycopy(parameters, 0, arguments, 2, parameters.length);
+        String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class, arguments);
+
+        List<JsonNode> nodes = new ArrayList<>();
+        collect(objectMapper.readTree(plan).get(0).get("Plan"), nodes);
+        return nodes;
+    }
+
+    private static void collect(JsonNode node, List<JsonNode> nodes) {
+        nodes.add(node);
+        for (JsonNode child : node.path("Plans")) {
+            collect(child, nodes);
+        }
+    }
+
+    private static boolean hasNode(List<JsonNode> nodes, String type) {
+        return nodes.stream().anyMatch(node -> type.equals(node.path("Node Type").asText()));
+    }
+
+    private String accessMethod(String index) {
+        return jdbcTemplate.queryForObject("SELECT am.amname FROM pg_class c JOIN pg_am am ON am.oid = c.relam " +
+                "WHERE c.relname = ?", String.class, index);
+    }
+}
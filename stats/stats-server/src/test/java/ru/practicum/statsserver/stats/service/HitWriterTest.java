@@ -0,0 +1,51 @@
+package ru.practicum.statsserver.stats.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.statsserver.PostgresTest;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Flyway needs two connections at startup, so the test holds one of them and leaves the writer a single one,
+// with which interning a new name inside the write transaction would time out.
+@SpringBootTest(properties = {
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=2000"})
+class HitWriterTest extends PostgresTest {
+    @Autowired
+    private HitWriter hitWriter;
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        clearHits();
+    }
+
+    @Test
+    void writeInternsNewNamesWithOneConnection() throws SQLException {
+        String app = "app-" + UUID.randomUUID();
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            hits.add(new EndpointHit(app, "/events/" + UUID.randomUUID(), "10.0.0." + i % 200, LocalDateTime.now()));
+        }
+
+        try (Connection held = dataSource.getConnection()) {
+            hitWriter.write(hits);
+        }
+
+        assertEquals(1200, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM stats s JOIN stats_app a ON a.id = s.app_id WHERE a.name = ?", Long.class, app));
+    }
+}
@@ -0,0 +1,85 @@
+package ru.practicum.statsserver.stats.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statsserver.PostgresTest;
+import ru.practicum.statsserver.stats.exception.exception.BadRequestException;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.UniqueMode;
+import ru.practicum.statsserver.stats.repository.HitDictionary;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Expands a pattern into more uris than the 65535 bind parameters one Postgres statement may carry.
+ */
+@SpringBootTest(properties = "stats.patterns.max-uris=" + UriPatternResolverTest.URIS)
+class UriPatternResolverTest extends PostgresTest {
+    static final int URIS = 70_000;
+    private static final String APP = "ewm-main-service";
+    private static final String PATTERN = "/bulk/*";
+
+    @Autowired
+    private StatsService statsService;
+    @Autowired
+    private HitDictionary hitDictionary;
+    @Autowired
+    private HitWriter hitWriter;
+    @Autowired
+    private PatternProperties patternProperties;
+
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        clearHits();
+        now = LocalDateTime.now().withNano(0);
+        List<EndpointHit> names = new ArrayList<>();
+        for (int i = 0; i < URIS; i++) {
+            names.add(new EndpointHit(APP, "/bulk/" + i, "10.0.0.1", now));
+        }
+        hitDictionary.intern(names);
+        hitWriter.write(List.of(
+                new EndpointHit(APP, "/bulk/1", "10.0.0.1", now),
+                new EndpointHit(APP, "/bulk/1", "10.0.0.2", now),
+                new EndpointHit(APP, "/bulk/69999", "10.0.0.1", now)));
+    }
+
+    @Test
+    void patternMatchingManyUrisIsQueriedWithOneArray() {
+        // Without approximate=false the rollups are summed first to decide whether to sample.
+        for (Boolean approximate : Arrays.asList(false, null)) {
+            for (UniqueMode unique : List.of(UniqueMode.NONE, UniqueMode.EXACT)) {
+                List<ViewStatsDto> stats = statsService.getStats(now.minusHours(1), now.plusHours(1), List.of(PATTERN),
+                        unique, null, false, approximate);
+
+                assertEquals(List.of(new ViewStatsDto(APP, PATTERN, 3L)), stats);
+            }
+        }
+
+        List<ViewStatsDto> expanded = statsService.getStats(now.minusHours(1), now.plusHours(1), List.of(PATTERN),
+                UniqueMode.NONE, null, true, false);
+
+        assertEquals(List.of(new ViewStatsDto(APP, "/bulk/1", 2L), new ViewStatsDto(APP, "/bulk/69999", 1L)), expanded);
+    }
+
+    @Test
+    void patternMatchingTooManyUrisIsRejected() {
+        patternProperties.setMaxUris(URIS - 1);
+        try {
+            assertThrows(BadRequestException.class, () -> statsService.getStats(now.minusHours(1), now.plusHours(1),
+                    List.of(PATTERN), UniqueMode.NONE, null, false, false));
+        } finally {
+            patternProperties.setMaxUris(URIS);
+        }
+    }
+}